@@ -0,0 +1,3 @@
+#!/bin/bash
+# lets the postgres-replica service stream WAL from this server with the application credentials
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
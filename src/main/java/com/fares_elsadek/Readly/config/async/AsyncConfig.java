@@ -1,19 +1,40 @@
 package com.fares_elsadek.Readly.config.async;
 
+import com.fares_elsadek.Readly.config.properties.BookEventsProperties;
+import com.fares_elsadek.Readly.config.properties.CoverDerivativeProperties;
+import com.fares_elsadek.Readly.config.properties.CoverUploadProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
+@RequiredArgsConstructor
 public class AsyncConfig implements AsyncConfigurer {
+    private final Environment environment;
+
     @Override
     @Bean(name = "emailExecutor")
     public Executor getAsyncExecutor() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // a virtual thread per email: retry back-off no longer holds a pool thread, the SMTP
+            // conversation itself runs on the platform threads of PlatformThreadMailSender
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("VerificationEmail-");
+            executor.setVirtualThreads(true);
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(3);
         executor.setMaxPoolSize(10);
@@ -22,4 +43,43 @@ public class AsyncConfig implements AsyncConfigurer {
         executor.initialize();
         return executor;
     }
+
+    @Bean(name = "bookEventExecutor")
+    public ThreadPoolTaskExecutor bookEventExecutor(BookEventsProperties bookEventsProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(bookEventsProperties.senderThreads());
+        executor.setMaxPoolSize(bookEventsProperties.senderThreads());
+        executor.setQueueCapacity(10_000);
+        executor.setThreadNamePrefix("BookEvents-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "coverUploadExecutor")
+    public ThreadPoolTaskExecutor coverUploadExecutor(CoverUploadProperties coverUploadProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coverUploadProperties.workerThreads());
+        executor.setMaxPoolSize(coverUploadProperties.workerThreads());
+        executor.setQueueCapacity(coverUploadProperties.queueCapacity());
+        executor.setThreadNamePrefix("CoverUpload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "coverDerivativeExecutor")
+    public ThreadPoolTaskExecutor coverDerivativeExecutor(CoverDerivativeProperties coverDerivativeProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coverDerivativeProperties.workerThreads());
+        executor.setMaxPoolSize(coverDerivativeProperties.workerThreads());
+        executor.setQueueCapacity(coverDerivativeProperties.queueCapacity());
+        // a full queue slows the backfill scan down to the pool's pace instead of dropping covers
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("CoverDerivatives-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
 }
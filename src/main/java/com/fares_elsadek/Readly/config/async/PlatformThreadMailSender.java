@@ -0,0 +1,70 @@
+package com.fares_elsadek.Readly.config.async;
+
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends mail on a few platform threads and lets the caller, usually a virtual thread, wait for it.
+ * Angus Mail's SMTPTransport holds its monitor for the whole conversation with the mail server,
+ * which pins the carrier of a virtual thread on JDK 21; a slow mail server would otherwise stall
+ * every carrier.
+ */
+public class PlatformThreadMailSender implements JavaMailSender, AutoCloseable {
+
+    private final JavaMailSender delegate;
+    private final ExecutorService transportExecutor;
+
+    public PlatformThreadMailSender(JavaMailSender delegate, int transportThreads) {
+        this.delegate = delegate;
+        this.transportExecutor = Executors.newFixedThreadPool(transportThreads,
+                Thread.ofPlatform().name("MailTransport-", 1).daemon().factory());
+    }
+
+    @Override
+    public MimeMessage createMimeMessage() {
+        return delegate.createMimeMessage();
+    }
+
+    @Override
+    public MimeMessage createMimeMessage(InputStream contentStream) throws MailException {
+        return delegate.createMimeMessage(contentStream);
+    }
+
+    @Override
+    public void send(MimeMessage... mimeMessages) throws MailException {
+        await(transportExecutor.submit(() -> delegate.send(mimeMessages)));
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+        await(transportExecutor.submit(() -> delegate.send(simpleMessages)));
+    }
+
+    @Override
+    public void close() {
+        transportExecutor.shutdown();
+    }
+
+    private static void await(Future<?> sending) {
+        try {
+            sending.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            throw new MailSendException("Sending mail failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            sending.cancel(true);
+            throw new MailSendException("Interrupted while sending mail", ex);
+        }
+    }
+}
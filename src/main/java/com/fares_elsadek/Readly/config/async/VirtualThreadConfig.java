@@ -0,0 +1,37 @@
+package com.fares_elsadek.Readly.config.async;
+
+import com.fares_elsadek.Readly.config.datasource.ConnectionLimitingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+
+/**
+ * What changes besides the executors once {@code spring.threads.virtual.enabled} is set: every
+ * Hikari pool declared as a bean is put behind a {@link ConnectionLimitingDataSource} (replica
+ * pools are wrapped where they are built), and mail goes out through a
+ * {@link PlatformThreadMailSender}.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private static final int MAIL_TRANSPORT_THREADS = 4;
+
+    @Bean
+    public static BeanPostProcessor virtualThreadPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool)
+                    return new ConnectionLimitingDataSource(pool);
+                if (bean instanceof JavaMailSender mailSender && !(bean instanceof PlatformThreadMailSender))
+                    return new PlatformThreadMailSender(mailSender, MAIL_TRANSPORT_THREADS);
+                return bean;
+            }
+        };
+    }
+}
@@ -1,33 +1,44 @@
 package com.fares_elsadek.Readly.config.caching;
 
+import com.fares_elsadek.Readly.config.properties.CacheTierProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
-import java.time.Duration;
+import java.util.HashMap;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory){
-        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(30))
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                             CacheTierProperties properties,
+                                             StringRedisTemplate redisTemplate){
+        var cacheConfigs = new HashMap<String, RedisCacheConfiguration>();
+        for (var cacheName : properties.caches().keySet())
+            cacheConfigs.put(cacheName, redisCacheConfiguration(properties.tier(cacheName)));
+        var redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+                .cacheDefaults(redisCacheConfiguration(properties.defaults()))
+                .withInitialCacheConfigurations(cacheConfigs)
+                .build();
+        return new TwoLevelCacheManager(redisCacheManager, properties, redisTemplate);
+    }
+
+    private static RedisCacheConfiguration redisCacheConfiguration(CacheTierProperties.Tier tier) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(tier.redisTtl())
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer())
                 ).serializeValuesWith(
-                        RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer())
-                 )
+                        RedisSerializationContext.SerializationPair.fromSerializer(new CacheValueSerializer(tier))
+                )
                 .disableCachingNullValues();
-        return RedisCacheManager.builder(redisConnectionFactory)
-                .cacheDefaults(config)
-                .build();
     }
 }
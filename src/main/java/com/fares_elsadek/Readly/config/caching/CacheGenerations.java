@@ -0,0 +1,152 @@
+package com.fares_elsadek.Readly.config.caching;
+
+import com.fares_elsadek.Readly.config.datasource.ReadYourWritesTracker;
+import com.fares_elsadek.Readly.config.properties.CacheTierProperties;
+import com.fares_elsadek.Readly.config.properties.ReadReplicaProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Generation counters that version cache keys, so invalidating a whole group of entries is a single
+ * {@code INCR} instead of a scan over the keyspace.
+ * <p>
+ * Keys built here embed the current generation of their scope: the catalog for pages of all books,
+ * a user for that user's own and borrowed pages, a book for the book itself. User pages also carry
+ * the catalog generation, as they show ratings and statuses of other owners' books. Bumping a scope
+ * makes every key built from it new; the old entries are never read again and expire with the Redis
+ * TTL.
+ * <p>
+ * Counters live in Redis and are cached per node. A bump is published with its new value and nodes
+ * keep the larger of what they hold and what they are told, so a slow read of the old value can
+ * never roll a node back. A lost message is bounded by the local TTL of {@code cache-generations}.
+ * <p>
+ * A replica may not have replayed the write behind a bump yet. For {@code readYourWritesWindow} after
+ * a scope advanced, building a key from it tells {@link ReadYourWritesTracker} that the read which may
+ * follow refills that key and has to come from the primary; keys of other scopes are unaffected.
+ */
+@Slf4j
+@Component
+public class CacheGenerations implements MessageListener {
+
+    public static final String CACHE_NAME = "cache-generations";
+    private static final String KEY_PREFIX = "cache-generation:";
+    private static final String CATALOG = "catalog";
+    private static final String USER = "user:";
+    private static final String BOOK = "book:";
+    private static final char SEPARATOR = '\n';
+
+    private final CacheTierProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final LoadingCache<String, Long> local;
+    // scope -> System.nanoTime() until which refills of its keys read the primary
+    private final Cache<String, Long> recentlyAdvanced;
+    private final long readYourWritesWindow;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public CacheGenerations(CacheTierProperties properties, ReadReplicaProperties readReplicaProperties,
+                            StringRedisTemplate redisTemplate) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        var tier = properties.tier(CACHE_NAME);
+        this.local = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, tier.localMaxSize()))
+                .expireAfterWrite(tier.localTtl())
+                .build(this::load);
+        this.recentlyAdvanced = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, tier.localMaxSize()))
+                .expireAfterWrite(readReplicaProperties.readYourWritesWindow())
+                .build();
+        this.readYourWritesWindow = readReplicaProperties.readYourWritesWindow().toNanos();
+    }
+
+    public String catalogKey(String key) {
+        return key + ":c" + generation(CATALOG);
+    }
+
+    public String userKey(String userId, String key) {
+        return key + ":c" + generation(CATALOG) + ".u" + generation(USER + userId);
+    }
+
+    public String bookKey(String bookId) {
+        return bookId + ":b" + generation(BOOK + bookId);
+    }
+
+    public void bumpCatalog() {
+        bumpAfterCommit(CATALOG);
+    }
+
+    public void bumpUser(String userId) {
+        bumpAfterCommit(USER + userId);
+    }
+
+    public void bumpBook(String bookId) {
+        bumpAfterCommit(BOOK + bookId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        var parts = new String(message.getBody(), StandardCharsets.UTF_8).split(String.valueOf(SEPARATOR));
+        if (parts.length != 3 || parts[0].equals(nodeId))
+            return;
+        try {
+            advance(parts[1], Long.parseLong(parts[2]));
+        } catch (NumberFormatException ex) {
+            log.debug("Ignoring malformed cache generation message: {}", ex.getMessage());
+        }
+    }
+
+    // readers in the committing transaction's wake must not cache what it replaced under the new generation
+    private void bumpAfterCommit(String scope) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(scope);
+                }
+            });
+        } else {
+            bump(scope);
+        }
+    }
+
+    private void bump(String scope) {
+        try {
+            Long generation = redisTemplate.opsForValue().increment(KEY_PREFIX + scope);
+            if (generation == null)
+                return;
+            advance(scope, generation);
+            redisTemplate.convertAndSend(properties.generationChannel(), nodeId + SEPARATOR + scope + SEPARATOR + generation);
+        } catch (RuntimeException ex) {
+            log.warn("Could not bump cache generation {}, cached entries stay until they expire: {}", scope, ex.getMessage());
+        }
+    }
+
+    // recorded before the new generation is visible, no reader can build the new key without seeing it
+    private void advance(String scope, long generation) {
+        recentlyAdvanced.put(scope, System.nanoTime() + readYourWritesWindow);
+        local.asMap().merge(scope, generation, Math::max);
+    }
+
+    private long generation(String scope) {
+        var replicatedBy = recentlyAdvanced.getIfPresent(scope);
+        if (replicatedBy != null)
+            ReadYourWritesTracker.readPrimaryUntil(replicatedBy);
+        return local.get(scope);
+    }
+
+    private Long load(String scope) {
+        var generation = redisTemplate.opsForValue().get(KEY_PREFIX + scope);
+        return generation == null ? 0L : Long.parseLong(generation);
+    }
+}
@@ -0,0 +1,134 @@
+package com.fares_elsadek.Readly.config.caching;
+
+import com.fares_elsadek.Readly.config.properties.CacheTierProperties;
+import com.fares_elsadek.Readly.enums.CacheCompression;
+import com.fares_elsadek.Readly.enums.CacheValueFormat;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Writes cache values in the format and compression configured for their cache.
+ * <p>
+ * Values carry {@code @class} hints exactly like {@link GenericJackson2JsonRedisSerializer} did, so
+ * JSON written by it stays readable. Smile writes the same tree in binary and refers back to property
+ * names and short strings it has already written, so the class names and field names repeated on
+ * every item of a page are stored once. Reading never depends on the configuration: Smile starts
+ * with {@code :)}, a zlib stream with {@code 0x78} and JSON with neither, so a cache can change
+ * format while entries written the old way are still in Redis.
+ */
+final class CacheValueSerializer implements RedisSerializer<Object> {
+
+    private static final byte ZLIB_HEADER = 0x78;
+    private static final ObjectMapper JSON = mapper(new JsonFactory());
+    private static final ObjectMapper SMILE = mapper(SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build());
+
+    private final ObjectMapper writer;
+    private final boolean compress;
+    private final long compressAbove;
+
+    CacheValueSerializer(CacheTierProperties.Tier tier) {
+        this.writer = tier.valueFormat() == CacheValueFormat.SMILE ? SMILE : JSON;
+        this.compress = tier.compression() == CacheCompression.DEFLATE;
+        this.compressAbove = tier.compressAbove().toBytes();
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null)
+            return new byte[0];
+        try {
+            var bytes = writer.writeValueAsBytes(value);
+            if (!compress || bytes.length <= compressAbove)
+                return bytes;
+            var deflated = deflate(bytes);
+            return deflated.length < bytes.length ? deflated : bytes;
+        } catch (IOException ex) {
+            throw new SerializationException("Could not write cache value of type " + value.getClass().getName(), ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0)
+            return null;
+        try {
+            if (bytes[0] == ZLIB_HEADER) {
+                try (var in = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+                    bytes = in.readAllBytes();
+                }
+            }
+            var reader = bytes.length > 1 && bytes[0] == ':' && bytes[1] == ')' ? SMILE : JSON;
+            return reader.readValue(bytes, Object.class);
+        } catch (IOException ex) {
+            throw new SerializationException("Could not read cache value", ex);
+        }
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(bytes.length / 2);
+            var buffer = new byte[8192];
+            while (!deflater.finished())
+                out.write(buffer, 0, deflater.deflate(buffer));
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        var mapper = new ObjectMapper(factory);
+        // a field dropped from a DTO must not break entries cached by the previous release
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(mapper, null);
+        var typer = new TypeHints(mapper);
+        typer.init(JsonTypeInfo.Value.construct(JsonTypeInfo.Id.CLASS, JsonTypeInfo.As.PROPERTY,
+                null, null, false, null), null);
+        mapper.setDefaultTyping(typer);
+        return mapper;
+    }
+
+    /** The types {@link GenericJackson2JsonRedisSerializer} writes {@code @class} for, and no others. */
+    @SuppressWarnings("deprecation")
+    private static final class TypeHints extends ObjectMapper.DefaultTypeResolverBuilder {
+
+        TypeHints(ObjectMapper mapper) {
+            super(ObjectMapper.DefaultTyping.EVERYTHING, mapper.getPolymorphicTypeValidator());
+        }
+
+        @Override
+        public boolean useForType(JavaType type) {
+            if (type.isJavaLangObject())
+                return true;
+            while (type.isArrayType() || type.isReferenceType())
+                type = type.isArrayType() ? type.getContentType() : type.getReferencedType();
+            var raw = type.getRawClass();
+            if (type.isEnumType() || ClassUtils.isPrimitiveOrWrapper(raw))
+                return false;
+            if (type.isFinal() && raw.getPackageName().startsWith("java"))
+                return false;
+            return !TreeNode.class.isAssignableFrom(raw);
+        }
+    }
+}
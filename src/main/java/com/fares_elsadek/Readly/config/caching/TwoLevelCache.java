@@ -0,0 +1,112 @@
+package com.fares_elsadek.Readly.config.caching;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * A cache read from a bounded in-process Caffeine cache first and from the shared Redis cache
+ * behind it on a miss. Writes go to both; evictions and clears also go out to the other nodes,
+ * which drop their local copies when the message arrives.
+ */
+class TwoLevelCache implements org.springframework.cache.Cache {
+
+    private final org.springframework.cache.Cache redis;
+    private final Cache<String, Object> local;
+    private final BiConsumer<String, String> invalidationPublisher;
+
+    TwoLevelCache(org.springframework.cache.Cache redis, Cache<String, Object> local,
+                  BiConsumer<String, String> invalidationPublisher) {
+        this.redis = redis;
+        this.local = local;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return redis.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redis.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        var value = local.getIfPresent(localKey(key));
+        if (value != null)
+            return new SimpleValueWrapper(value);
+        var wrapper = redis.get(key);
+        if (wrapper != null && wrapper.get() != null)
+            local.put(localKey(key), wrapper.get());
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        var wrapper = get(key);
+        var value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value))
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        var value = local.getIfPresent(localKey(key));
+        if (value != null)
+            return (T) value;
+        T loaded = redis.get(key, valueLoader);
+        if (loaded != null)
+            local.put(localKey(key), loaded);
+        return loaded;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redis.put(key, value);
+        if (value != null)
+            local.put(localKey(key), value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        var existing = redis.putIfAbsent(key, value);
+        var current = existing == null ? value : existing.get();
+        if (current != null)
+            local.put(localKey(key), current);
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        redis.evict(key);
+        local.invalidate(localKey(key));
+        invalidationPublisher.accept(getName(), localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        redis.clear();
+        local.invalidateAll();
+        invalidationPublisher.accept(getName(), null);
+    }
+
+    /** Drops the local copy after another node evicted the key, {@code null} drops them all. */
+    void invalidateLocal(String key) {
+        if (key == null)
+            local.invalidateAll();
+        else
+            local.invalidate(key);
+    }
+
+    // Redis keys are strings as well, so a key means the same entry on every node and in every tier
+    private static String localKey(Object key) {
+        return key.toString();
+    }
+}
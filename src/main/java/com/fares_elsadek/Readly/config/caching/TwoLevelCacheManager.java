@@ -0,0 +1,83 @@
+package com.fares_elsadek.Readly.config.caching;
+
+import com.fares_elsadek.Readly.config.properties.CacheTierProperties;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Puts a bounded Caffeine cache on every node in front of each Redis cache.
+ * <p>
+ * Hot entries are served from the heap without a round trip or deserialization. An eviction or
+ * clear on one node is published on {@code invalidationChannel} and every other node drops the
+ * matching local entries when it arrives. Pub/sub delivery is best effort and a read racing an
+ * eviction can put the old value back locally, so {@code localTtl} is the bound on how long a
+ * node may serve a value another node already evicted; keep it short.
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractCacheManager implements MessageListener {
+
+    private static final char SEPARATOR = '\n';
+
+    private final RedisCacheManager redisCacheManager;
+    private final CacheTierProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    // lets a node skip its own messages, its local tier was updated before publishing
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager, CacheTierProperties properties,
+                                StringRedisTemplate redisTemplate) {
+        this.redisCacheManager = redisCacheManager;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        redisCacheManager.initializeCaches();
+        return List.of();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        var redisCache = redisCacheManager.getCache(name);
+        var tier = properties.tier(name);
+        if (redisCache == null || tier.localMaxSize() == 0)
+            return redisCache;
+        var local = Caffeine.newBuilder()
+                .maximumSize(tier.localMaxSize())
+                .expireAfterWrite(tier.localTtl())
+                .<String, Object>build();
+        return new TwoLevelCache(redisCache, local, this::publishInvalidation);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        var parts = new String(message.getBody(), StandardCharsets.UTF_8).split(String.valueOf(SEPARATOR), 3);
+        if (parts.length < 2 || parts[0].equals(nodeId))
+            return;
+        // only caches this node has used hold local entries
+        if (lookupCache(parts[1]) instanceof TwoLevelCache cache)
+            cache.invalidateLocal(parts.length == 3 ? parts[2] : null);
+    }
+
+    private void publishInvalidation(String cacheName, String key) {
+        var message = nodeId + SEPARATOR + cacheName + (key == null ? "" : SEPARATOR + key);
+        try {
+            redisTemplate.convertAndSend(properties.invalidationChannel(), message);
+        } catch (RuntimeException ex) {
+            // the other nodes still drop their copy when localTtl runs out
+            log.warn("Could not publish invalidation of cache {}: {}", cacheName, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.fares_elsadek.Readly.config.datasource;
+
+import com.fares_elsadek.Readly.config.properties.ReadReplicaProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * Sends {@code @Transactional(readOnly = true)} work to the read replicas, everything else to the
+ * primary. Only active once {@code app.datasource.replicas} lists at least one replica, until then
+ * the auto-configured single pool is used.
+ * <p>
+ * The application's {@link DataSource} is a {@link LazyConnectionDataSourceProxy}: the JPA
+ * transaction manager marks the connection read-only when the transaction begins, and the physical
+ * connection is only fetched on the first statement, from the replicas if that flag is set.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource", name = "replicas[0].url")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        var dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(StringRedisTemplate redisTemplate,
+                                                       ReadReplicaProperties properties) {
+        return new ReadYourWritesTracker(redisTemplate, properties);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                      ReadReplicaProperties properties,
+                                                      ReadYourWritesTracker readYourWritesTracker,
+                                                      Environment environment) throws SQLException {
+        // with virtual threads the primary pool bean is already behind a ConnectionLimitingDataSource
+        var primaryPool = primaryDataSource.unwrap(HikariDataSource.class);
+        var replicas = new ArrayList<DataSource>();
+        for (var replica : properties.replicas()) {
+            // pools start on first use, a replica that is down at startup does not stop the application
+            var pool = new HikariDataSource();
+            primaryPool.copyStateTo(pool);
+            pool.setPoolName("replica-" + replicas.size());
+            pool.setJdbcUrl(replica.url());
+            if (StringUtils.hasText(replica.username()))
+                pool.setUsername(replica.username());
+            if (replica.password() != null)
+                pool.setPassword(replica.password());
+            pool.setConnectionTimeout(properties.replicaConnectionTimeout().toMillis());
+            replicas.add(Threading.VIRTUAL.isActive(environment) ? new ConnectionLimitingDataSource(pool) : pool);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWritesTracker);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 ReplicaRoutingDataSource replicaDataSource) {
+        var dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,111 @@
+package com.fares_elsadek.Readly.config.datasource;
+
+import com.fares_elsadek.Readly.config.properties.ReadReplicaProperties;
+import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Decides which reads must see the primary because the replicas may not have replayed a recent
+ * commit yet. Each case is remembered for {@code readYourWritesWindow}:
+ * <ul>
+ *     <li>a user committed a read-write transaction: that user's reads;</li>
+ *     <li>a request without a user did, e.g. activating an account: every anonymous read, such as
+ *     the login that follows it;</li>
+ *     <li>the thread built a cache key from a generation that just advanced: its next transaction,
+ *     which may refill that key and would otherwise keep the old row there for the whole Redis TTL.</li>
+ * </ul>
+ * The write markers live in Redis because the next request may land on any node, and are looked up
+ * once per request. The refill marker is set by {@code CacheGenerations} on the thread itself.
+ */
+@Slf4j
+public class ReadYourWritesTracker implements TransactionExecutionListener {
+
+    private static final String KEY_PREFIX = "read-your-writes:";
+    private static final String ANONYMOUS_KEY = KEY_PREFIX + "anonymous";
+    private static final ThreadLocal<Long> REFILL_FROM_PRIMARY_UNTIL = new ThreadLocal<>();
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReadReplicaProperties properties;
+
+    public ReadYourWritesTracker(StringRedisTemplate redisTemplate, ReadReplicaProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    /** The next transaction on this thread may refill a cache entry from data committed until {@code nanoTime}. */
+    public static void readPrimaryUntil(long nanoTime) {
+        var current = REFILL_FROM_PRIMARY_UNTIL.get();
+        if (current == null || nanoTime - current > 0)
+            REFILL_FROM_PRIMARY_UNTIL.set(nanoTime);
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        if (!transaction.isNewTransaction())
+            return;
+        REFILL_FROM_PRIMARY_UNTIL.remove();
+        if (commitFailure != null || transaction.isReadOnly())
+            return;
+        var key = markerKey();
+        remember(key, true);
+        try {
+            redisTemplate.opsForValue().set(key, "1",
+                    properties.readYourWritesWindow());
+        } catch (DataAccessException ex) {
+            log.warn("Could not record a write as {}, the next reads may be stale: {}", key, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        if (transaction.isNewTransaction())
+            REFILL_FROM_PRIMARY_UNTIL.remove();
+    }
+
+    /** Whether the current read-only transaction must go to the primary. */
+    boolean mustReadPrimary() {
+        var refillUntil = REFILL_FROM_PRIMARY_UNTIL.get();
+        if (refillUntil != null && refillUntil - System.nanoTime() > 0)
+            return true;
+
+        var key = markerKey();
+        var request = currentRequest();
+        if (request != null && request.getAttribute(key, RequestAttributes.SCOPE_REQUEST) instanceof Boolean remembered)
+            return remembered;
+        boolean mustReadPrimary;
+        try {
+            mustReadPrimary = Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        } catch (DataAccessException ex) {
+            // without the marker we cannot tell, the primary is always up to date
+            mustReadPrimary = true;
+        }
+        remember(key, mustReadPrimary);
+        return mustReadPrimary;
+    }
+
+    // a request reads the marker once; its own writes switch it to the primary for the rest of it
+    private static void remember(String key, boolean mustReadPrimary) {
+        var request = currentRequest();
+        if (request != null)
+            request.setAttribute(key, mustReadPrimary, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private static RequestAttributes currentRequest() {
+        return RequestContextHolder.getRequestAttributes();
+    }
+
+    // doubles as the request attribute, so a request that logs in looks its user up afresh
+    private static String markerKey() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserPrincipal principal)
+            return KEY_PREFIX + principal.userId();
+        return ANONYMOUS_KEY;
+    }
+}
@@ -0,0 +1,67 @@
+package com.fares_elsadek.Readly.config.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections for read-only transactions. Replicas are taken round robin; reads that
+ * {@link ReadYourWritesTracker} says may not be replicated yet go to the primary, and so does
+ * everything while no replica can hand out a connection.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    ReadYourWritesTracker readYourWritesTracker) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readYourWritesTracker.mustReadPrimary())
+            return primary.getConnection();
+
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = Math.floorMod(start + i, replicas.size());
+            try {
+                return replicas.get(replica).getConnection();
+            } catch (SQLException ex) {
+                log.warn("Replica {} is unavailable, trying the next one: {}", replica, ex.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections always use the configured credentials");
+    }
+
+    @Override
+    public void close() {
+        for (var replica : replicas) {
+            try {
+                if (replica instanceof AutoCloseable pool)
+                    pool.close();
+            } catch (Exception ex) {
+                log.warn("Could not close a replica pool: {}", ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.book-events")
+@Validated
+public record BookEventsProperties(
+        @NotBlank String channel,
+        @NotNull Duration streamTimeout,
+        @NotNull Duration heartbeatInterval,
+        @Positive int maxWatchedBooks,
+        @Positive int senderThreads
+) {}
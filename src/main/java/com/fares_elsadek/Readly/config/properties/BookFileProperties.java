@@ -0,0 +1,19 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.book-files")
+@Validated
+public record BookFileProperties(
+        @NotBlank String tempDir,
+        @NotNull DataSize maxFileSize,
+        @NotNull DataSize chunkSize,
+        @NotNull Duration uploadTtl,
+        @NotNull Duration sweepInterval
+) {}
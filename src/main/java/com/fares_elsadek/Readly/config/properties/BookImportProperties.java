@@ -0,0 +1,12 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "app.book-import")
+@Validated
+public record BookImportProperties(
+        @Positive int batchSize,
+        @Positive int maxReportedErrors
+) {}
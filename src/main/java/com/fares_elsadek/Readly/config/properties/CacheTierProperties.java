@@ -0,0 +1,52 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import com.fares_elsadek.Readly.enums.CacheCompression;
+import com.fares_elsadek.Readly.enums.CacheValueFormat;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.cache")
+@Validated
+public record CacheTierProperties(
+        @NotBlank String invalidationChannel,
+        @NotBlank String generationChannel,
+        @NotNull @Valid Tier defaults,
+        Map<String, @Valid Tier> caches
+) {
+    public CacheTierProperties {
+        caches = caches == null ? Map.of() : Map.copyOf(caches);
+        if (defaults != null && (defaults.localMaxSize() == null || defaults.localTtl() == null || defaults.redisTtl() == null
+                || defaults.valueFormat() == null || defaults.compression() == null || defaults.compressAbove() == null))
+            throw new IllegalArgumentException("app.cache.defaults needs local-max-size, local-ttl, redis-ttl, "
+                    + "value-format, compression and compress-above");
+    }
+
+    /** The settings of one cache, anything left out is taken from {@link #defaults()}. */
+    public Tier tier(String cacheName) {
+        var tier = caches.get(cacheName);
+        if (tier == null)
+            return defaults;
+        return new Tier(
+                tier.localMaxSize() != null ? tier.localMaxSize() : defaults.localMaxSize(),
+                tier.localTtl() != null ? tier.localTtl() : defaults.localTtl(),
+                tier.redisTtl() != null ? tier.redisTtl() : defaults.redisTtl(),
+                tier.valueFormat() != null ? tier.valueFormat() : defaults.valueFormat(),
+                tier.compression() != null ? tier.compression() : defaults.compression(),
+                tier.compressAbove() != null ? tier.compressAbove() : defaults.compressAbove());
+    }
+
+    /**
+     * A local max size of 0 keeps the cache in Redis only. Values are written to Redis in
+     * {@code valueFormat} and compressed when they encode to more than {@code compressAbove}.
+     */
+    public record Tier(@PositiveOrZero Long localMaxSize, Duration localTtl, Duration redisTtl,
+                       CacheValueFormat valueFormat, CacheCompression compression, DataSize compressAbove) {}
+}
@@ -0,0 +1,15 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "app.cover-derivatives")
+@Validated
+public record CoverDerivativeProperties(
+        @Positive int workerThreads,
+        @Positive int queueCapacity,
+        @DecimalMin("0.1") @DecimalMax("1.0") float jpegQuality
+) {}
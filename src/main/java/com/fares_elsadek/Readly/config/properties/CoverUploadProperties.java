@@ -0,0 +1,18 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.cover-upload")
+@Validated
+public record CoverUploadProperties(
+        @NotBlank String tempDir,
+        @Positive int workerThreads,
+        @Positive int queueCapacity,
+        @NotNull Duration jobTtl
+) {}
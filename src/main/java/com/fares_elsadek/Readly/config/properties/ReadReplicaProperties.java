@@ -0,0 +1,25 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.datasource")
+@Validated
+public record ReadReplicaProperties(
+        List<@Valid Replica> replicas,
+        @NotNull Duration readYourWritesWindow,
+        @NotNull Duration replicaConnectionTimeout
+) {
+    public ReadReplicaProperties {
+        replicas = replicas == null ? List.of() : List.copyOf(replicas);
+    }
+
+    /** A streaming replica of the primary; username and password default to the primary's. */
+    public record Replica(@NotBlank String url, String username, String password) {}
+}
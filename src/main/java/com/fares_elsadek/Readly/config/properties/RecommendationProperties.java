@@ -0,0 +1,21 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.recommendations")
+@Validated
+public record RecommendationProperties(
+        @NotNull Duration pollInterval,
+        @NotNull Duration commitLag,
+        @Positive int batchSize,
+        @Positive int maxHistoryPerUser,
+        @Positive int maxResults,
+        @NotBlank String snapshotPath,
+        @NotNull Duration snapshotInterval
+) {}
@@ -0,0 +1,21 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.similarity")
+@Validated
+public record SimilarityProperties(
+        @NotNull Duration pollInterval,
+        @NotNull Duration commitLag,
+        @Positive int batchSize,
+        @Positive int bands,
+        @Positive int rowsPerBand,
+        @Positive int maxBucketSize,
+        @Positive int maxCandidates,
+        @Positive int maxResults
+) {}
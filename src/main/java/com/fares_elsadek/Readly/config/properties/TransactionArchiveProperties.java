@@ -0,0 +1,17 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.transaction-archive")
+@Validated
+public record TransactionArchiveProperties(
+        @NotNull Duration interval,
+        @NotNull Duration minAge,
+        @Positive int batchSize,
+        @Positive int maxBatchesPerRun
+) {}
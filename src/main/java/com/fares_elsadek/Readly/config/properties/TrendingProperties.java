@@ -0,0 +1,20 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.trending")
+@Validated
+public record TrendingProperties(
+        @NotNull Duration flushInterval,
+        @NotNull Duration halfLife,
+        @NotNull Duration landmarkPeriod,
+        @Positive double viewWeight,
+        @Positive double borrowWeight,
+        @Positive int maxTrackedBooks,
+        @Positive int maxResults
+) {}
@@ -0,0 +1,16 @@
+package com.fares_elsadek.Readly.config.properties;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.upload-store")
+@Validated
+public record UploadStoreProperties(
+        @NotNull Duration sweepInterval,
+        @NotNull Duration sweepGracePeriod,
+        @Positive int sweepBatchSize
+) {}
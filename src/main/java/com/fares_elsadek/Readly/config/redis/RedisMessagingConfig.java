@@ -0,0 +1,31 @@
+package com.fares_elsadek.Readly.config.redis;
+
+import com.fares_elsadek.Readly.config.caching.CacheGenerations;
+import com.fares_elsadek.Readly.config.caching.TwoLevelCacheManager;
+import com.fares_elsadek.Readly.config.properties.BookEventsProperties;
+import com.fares_elsadek.Readly.config.properties.CacheTierProperties;
+import com.fares_elsadek.Readly.services.bookevents.BookEventRelay;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisMessagingConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       BookEventRelay bookEventRelay,
+                                                                       BookEventsProperties bookEventsProperties,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       CacheGenerations cacheGenerations,
+                                                                       CacheTierProperties cacheTierProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(bookEventRelay, new ChannelTopic(bookEventsProperties.channel()));
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheTierProperties.invalidationChannel()));
+        container.addMessageListener(cacheGenerations, new ChannelTopic(cacheTierProperties.generationChannel()));
+        return container;
+    }
+}
@@ -3,6 +3,7 @@ package com.fares_elsadek.Readly.config.security;
 import com.fares_elsadek.Readly.config.security.handler.CustomAccessDeniedHandler;
 import com.fares_elsadek.Readly.config.security.handler.CustomAuthenticationEntryPoint;
 import com.fares_elsadek.Readly.filters.JwtValidatorFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -38,6 +39,7 @@ public class ReadlySecurityConfiguration {
 
     private static final String[] PUBLIC_URLS = {
             "/auth/**",
+            "/book/cover/files/**",
             "/v2/api-docs",
             "/v3/api-docs",
             "/v3/api-docs/**",
@@ -55,6 +57,8 @@ public class ReadlySecurityConfiguration {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(req ->
                                     req.requestMatchers(PUBLIC_URLS).permitAll()
+                                            // the original request was already authorized, streaming bodies complete on an async dispatch
+                                            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                             .anyRequest().authenticated()
                         ).sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(getAuthenticationProvider())
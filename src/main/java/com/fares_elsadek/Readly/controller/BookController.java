@@ -1,18 +1,55 @@
 package com.fares_elsadek.Readly.controller;
 
 import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookFileUploadDto;
+import com.fares_elsadek.Readly.dtos.BookFileUploadRequestDto;
 import com.fares_elsadek.Readly.dtos.BookHistoryDto;
+import com.fares_elsadek.Readly.dtos.BookImportReportDto;
+import com.fares_elsadek.Readly.dtos.BookRecommendationDto;
 import com.fares_elsadek.Readly.dtos.BookRequestDto;
 import com.fares_elsadek.Readly.dtos.BookResponseDto;
+import com.fares_elsadek.Readly.dtos.CoverUploadJobDto;
+import com.fares_elsadek.Readly.dtos.CursorPageDto;
+import com.fares_elsadek.Readly.dtos.SimilarBookDto;
+import com.fares_elsadek.Readly.dtos.WaitlistPositionDto;
+import com.fares_elsadek.Readly.enums.CountMode;
+import com.fares_elsadek.Readly.enums.ImportFormat;
+import com.fares_elsadek.Readly.exceptions.NotFoundException;
+import com.fares_elsadek.Readly.services.bookimport.BookImportService;
 import com.fares_elsadek.Readly.services.book.BookService;
+import com.fares_elsadek.Readly.services.bookfile.BookFileService;
+import com.fares_elsadek.Readly.services.bookevents.BookEventService;
+import com.fares_elsadek.Readly.services.bookexport.BookExportService;
+import com.fares_elsadek.Readly.services.coverupload.CoverUploadService;
+import com.fares_elsadek.Readly.services.recommendation.BookRecommendationService;
+import com.fares_elsadek.Readly.services.similarity.BookSimilarityService;
+import com.fares_elsadek.Readly.services.trending.BookTrendingService;
+import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import com.fares_elsadek.Readly.services.waitlist.BookWaitlistService;
+import com.fares_elsadek.Readly.utils.FileDownloads;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -22,15 +59,76 @@ import java.util.List;
 @SecurityRequirement(name = "bearerAuth")
 public class BookController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    // stored file names are content hashes and are never rewritten with other content
+    private static final CacheControl COVER_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    // revalidated on every use so access ends with the loan, the ETag keeps that a 304 without a body
+    private static final CacheControl BOOK_FILE_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
+    private final BookWaitlistService bookWaitlistService;
+    private final BookEventService bookEventService;
+    private final BookTrendingService bookTrendingService;
+    private final BookRecommendationService bookRecommendationService;
+    private final BookSimilarityService bookSimilarityService;
+    private final CoverUploadService coverUploadService;
+    private final UploadFilesService uploadFilesService;
+    private final BookFileService bookFileService;
     @PostMapping
     public ResponseEntity<ApiResponse<BookResponseDto>> saveBook(@RequestBody @Valid BookRequestDto bookRequest){
         return ResponseEntity.ok(bookService.saveBook(bookRequest));
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ApiResponse<BookImportReportDto>> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body){
+        var format = TEXT_CSV.isCompatibleWith(contentType) ? ImportFormat.CSV : ImportFormat.NDJSON;
+        return ResponseEntity.ok(bookImportService.importBooks(body,format));
+    }
+
+    @Secured("ADMIN")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(
+            @RequestParam(name = "gzip",defaultValue = "false" , required = false) boolean gzip){
+        return exportResponse("books", gzip, out -> bookExportService.exportCatalog(out,gzip));
+    }
+
+    @Secured("ADMIN")
+    @GetMapping("/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(name = "gzip",defaultValue = "false" , required = false) boolean gzip){
+        return exportResponse("book-transactions", gzip, out -> bookExportService.exportTransactions(out,gzip));
+    }
+
     @GetMapping("/{bookId}")
     public ResponseEntity<ApiResponse<BookResponseDto>> getBookById(@PathVariable String bookId){
-        return ResponseEntity.ok(bookService.getBookById(bookId));
+        var response = bookService.getBookById(bookId);
+        // counted here rather than in the service so cache hits are counted too
+        bookTrendingService.recordView(bookId);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{bookId}/recommendations")
+    public ResponseEntity<ApiResponse<List<BookRecommendationDto>>> getRecommendations(
+            @PathVariable String bookId,
+            @RequestParam(name = "limit",defaultValue = "10" , required = false) int limit){
+        return ResponseEntity.ok(bookRecommendationService.getRecommendations(bookId, limit));
+    }
+
+    @GetMapping("/{bookId}/similar")
+    public ResponseEntity<ApiResponse<List<SimilarBookDto>>> getSimilarBooks(
+            @PathVariable String bookId,
+            @RequestParam(name = "limit",defaultValue = "10" , required = false) int limit){
+        return ResponseEntity.ok(bookSimilarityService.getSimilarBooks(bookId, limit));
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<ApiResponse<List<BookResponseDto>>> getTrendingBooks(
+            @RequestParam(name = "limit",defaultValue = "20" , required = false) int limit){
+        return ResponseEntity.ok(bookTrendingService.getTrendingBooks(limit));
     }
 
     @GetMapping
@@ -55,10 +153,42 @@ public class BookController {
         return ResponseEntity.ok(bookService.findAllBorrowedBooks(page,size));
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPageDto<BookResponseDto>>> scrollAllBooks(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size",defaultValue = "10" , required = false) int size,
+            @RequestParam(name = "count",defaultValue = "NONE" , required = false) CountMode count){
+        return ResponseEntity.ok(bookService.scrollAllBooks(cursor,size,count));
+    }
+
+    @GetMapping("/owner/scroll")
+    public ResponseEntity<ApiResponse<CursorPageDto<BookResponseDto>>> scrollOwnerBooks(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size",defaultValue = "10" , required = false) int size,
+            @RequestParam(name = "count",defaultValue = "NONE" , required = false) CountMode count){
+        return ResponseEntity.ok(bookService.scrollOwnerBooks(cursor,size,count));
+    }
+
+    @GetMapping("/borrowed/scroll")
+    public ResponseEntity<ApiResponse<CursorPageDto<BookResponseDto>>> scrollBorrowedBooks(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size",defaultValue = "10" , required = false) int size,
+            @RequestParam(name = "count",defaultValue = "NONE" , required = false) CountMode count){
+        return ResponseEntity.ok(bookService.scrollBorrowedBooks(cursor,size,count));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<CursorPageDto<BookResponseDto>>> searchBooks(
+            @RequestParam(name = "q") String query,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size",defaultValue = "10" , required = false) int size){
+        return ResponseEntity.ok(bookService.searchBooks(query,cursor,size));
+    }
+
     @PatchMapping("/shareable/{bookId}")
     public ResponseEntity<ApiResponse<BookResponseDto>> updateShareableStatus(
             @PathVariable String bookId){
-        return ResponseEntity.ok(bookService.updateArchivedStatus(bookId));
+        return ResponseEntity.ok(bookService.updateShareableStatus(bookId));
     }
 
     @PatchMapping("/archived/{bookId}")
@@ -85,10 +215,113 @@ public class BookController {
         return  ResponseEntity.ok(bookService.approveReturnBorrowBook(bookId));
     }
 
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @RequestParam(name = "watch", required = false) List<String> watchedBookIds){
+        return bookEventService.subscribe(watchedBookIds);
+    }
+
+    @PostMapping("/waitlist/{bookId}")
+    public ResponseEntity<ApiResponse<WaitlistPositionDto>> joinWaitlist(
+            @PathVariable String bookId){
+        return  ResponseEntity.ok(bookWaitlistService.joinWaitlist(bookId));
+    }
+
+    @DeleteMapping("/waitlist/{bookId}")
+    public ResponseEntity<ApiResponse<Void>> leaveWaitlist(
+            @PathVariable String bookId){
+        return  ResponseEntity.ok(bookWaitlistService.leaveWaitlist(bookId));
+    }
+
+    @GetMapping("/waitlist/{bookId}")
+    public ResponseEntity<ApiResponse<WaitlistPositionDto>> getWaitlistPosition(
+            @PathVariable String bookId){
+        return  ResponseEntity.ok(bookWaitlistService.getWaitlistPosition(bookId));
+    }
+
     @PostMapping(value = "/cover/{bookId}", consumes = "multipart/form-data")
-    public ResponseEntity<ApiResponse<BookResponseDto>> uploadBookCoverPicture(@PathVariable String bookId,
+    public ResponseEntity<ApiResponse<CoverUploadJobDto>> uploadBookCoverPicture(@PathVariable String bookId,
                                                     @RequestParam("cover") MultipartFile cover){
-        return  ResponseEntity.ok(bookService.uploadBookCoverPicture(bookId,cover));
+        var response = coverUploadService.submitCoverUpload(bookId,cover);
+        if(!response.success())
+            return ResponseEntity.badRequest().body(response);
+        var location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/book/cover/jobs/{jobId}")
+                .buildAndExpand(response.data().jobId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(response);
+    }
+
+    @GetMapping("/cover/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<CoverUploadJobDto>> getCoverUploadJob(
+            @PathVariable String jobId){
+        return  ResponseEntity.ok(coverUploadService.getJob(jobId));
+    }
+
+    @GetMapping("/cover/files/{filename}")
+    public void getCoverFile(@PathVariable String filename,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            FileDownloads.send(uploadFilesService.locatePublic(filename), COVER_CACHE_CONTROL, request, response);
+        } catch (NoSuchFileException | IllegalArgumentException ex) {
+            throw new NotFoundException("Cover", filename);
+        }
+    }
+
+    @PostMapping("/file/{bookId}/uploads")
+    public ResponseEntity<ApiResponse<BookFileUploadDto>> createBookFileUpload(@PathVariable String bookId,
+                                                    @RequestBody @Valid BookFileUploadRequestDto uploadRequest){
+        var response = bookFileService.createUpload(bookId, uploadRequest);
+        if(!response.success())
+            return ResponseEntity.badRequest().body(response);
+        var location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/book/file/uploads/{uploadId}")
+                .buildAndExpand(response.data().uploadId())
+                .toUri();
+        return ResponseEntity.created(location).body(response);
+    }
+
+    @PutMapping(value = "/file/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ApiResponse<BookFileUploadDto>> writeBookFileChunk(@PathVariable String uploadId,
+                                                    @RequestParam long offset,
+                                                    InputStream body) throws IOException {
+        var response = bookFileService.writeChunk(uploadId, offset, body);
+        return response.success() ? ResponseEntity.ok(response) : ResponseEntity.badRequest().body(response);
+    }
+
+    @GetMapping("/file/uploads/{uploadId}")
+    public ResponseEntity<ApiResponse<BookFileUploadDto>> getBookFileUpload(
+            @PathVariable String uploadId){
+        return  ResponseEntity.ok(bookFileService.getUpload(uploadId));
+    }
+
+    @PostMapping("/file/uploads/{uploadId}/complete")
+    public ResponseEntity<ApiResponse<BookFileUploadDto>> completeBookFileUpload(
+            @PathVariable String uploadId) throws IOException {
+        var response = bookFileService.completeUpload(uploadId);
+        return response.success() ? ResponseEntity.ok(response) : ResponseEntity.badRequest().body(response);
+    }
+
+    @GetMapping("/file/{bookId}")
+    public void getBookFile(@PathVariable String bookId,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        var download = bookFileService.prepareDownload(bookId);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(download.fileName(), StandardCharsets.UTF_8).build().toString());
+        try {
+            FileDownloads.send(download.file(), BOOK_FILE_CACHE_CONTROL, request, response);
+        } catch (NoSuchFileException ex) {
+            throw new NotFoundException("E-book of book", bookId);
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(String name, boolean gzip, StreamingResponseBody body){
+        var filename = gzip ? name + ".ndjson.gz" : name + ".ndjson";
+        var contentType = gzip ? MediaType.parseMediaType("application/gzip") : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
     }
 
 }
@@ -0,0 +1,51 @@
+package com.fares_elsadek.Readly.controller;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.CursorPageDto;
+import com.fares_elsadek.Readly.dtos.FeedbackRequestDto;
+import com.fares_elsadek.Readly.dtos.FeedbackResponseDto;
+import com.fares_elsadek.Readly.services.feedback.FeedbackService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/feedback")
+@RequiredArgsConstructor
+@Tag(name = "Feedback Controller")
+@SecurityRequirement(name = "bearerAuth")
+public class FeedbackController {
+
+    private final FeedbackService feedbackService;
+
+    @PostMapping("/{bookId}")
+    public ResponseEntity<ApiResponse<FeedbackResponseDto>> saveFeedback(
+            @PathVariable String bookId,
+            @RequestBody @Valid FeedbackRequestDto feedbackRequest){
+        return ResponseEntity.ok(feedbackService.saveFeedback(bookId,feedbackRequest));
+    }
+
+    @PutMapping("/{feedbackId}")
+    public ResponseEntity<ApiResponse<FeedbackResponseDto>> updateFeedback(
+            @PathVariable String feedbackId,
+            @RequestBody @Valid FeedbackRequestDto feedbackRequest){
+        return ResponseEntity.ok(feedbackService.updateFeedback(feedbackId,feedbackRequest));
+    }
+
+    @DeleteMapping("/{feedbackId}")
+    public ResponseEntity<ApiResponse<Void>> deleteFeedback(
+            @PathVariable String feedbackId){
+        return ResponseEntity.ok(feedbackService.deleteFeedback(feedbackId));
+    }
+
+    @GetMapping("/book/{bookId}")
+    public ResponseEntity<ApiResponse<CursorPageDto<FeedbackResponseDto>>> scrollBookFeedbacks(
+            @PathVariable String bookId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size",defaultValue = "10" , required = false) int size){
+        return ResponseEntity.ok(feedbackService.scrollBookFeedbacks(bookId,cursor,size));
+    }
+}
@@ -0,0 +1,8 @@
+package com.fares_elsadek.Readly.dtos;
+
+import com.fares_elsadek.Readly.enums.BookEventType;
+
+import java.time.Instant;
+
+public record BookEventDto(BookEventType type, String bookId, boolean available, Instant occurredAt) {
+}
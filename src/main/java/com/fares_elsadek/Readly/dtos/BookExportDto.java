@@ -0,0 +1,18 @@
+package com.fares_elsadek.Readly.dtos;
+
+import java.time.LocalDateTime;
+
+public record BookExportDto(
+        String id,
+        String title,
+        String authorName,
+        String isbn,
+        String synopsis,
+        String bookCover,
+        boolean shareable,
+        boolean archived,
+        String ownerId,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+}
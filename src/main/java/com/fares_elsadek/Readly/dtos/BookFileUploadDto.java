@@ -0,0 +1,15 @@
+package com.fares_elsadek.Readly.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookFileUploadDto(
+        String uploadId,
+        String bookId,
+        long size,
+        long chunkSize,
+        List<Long> missingOffsets,
+        String bookFile
+) {}
@@ -0,0 +1,11 @@
+package com.fares_elsadek.Readly.dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+public record BookFileUploadRequestDto(
+        @NotBlank(message = "File name is required")
+        String fileName,
+        @Positive(message = "File size must be greater than zero")
+        long size
+) {}
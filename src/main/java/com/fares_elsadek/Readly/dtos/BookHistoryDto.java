@@ -1,6 +1,4 @@
 package com.fares_elsadek.Readly.dtos;
 
-import com.fares_elsadek.Readly.entity.Book;
-
-public record BookHistoryDto(String id,Book book, boolean returned, boolean returnApproved, UserDto user) {
+public record BookHistoryDto(String id,BookResponseDto book, boolean returned, boolean returnApproved, UserDto user) {
 }
@@ -0,0 +1,13 @@
+package com.fares_elsadek.Readly.dtos;
+
+import java.util.List;
+
+public record BookImportReportDto(
+        long totalRows,
+        long importedRows,
+        long failedRows,
+        boolean errorsTruncated,
+        List<RowError> errors
+) {
+    public record RowError(long line, String message) {}
+}
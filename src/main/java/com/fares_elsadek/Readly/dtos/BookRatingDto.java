@@ -0,0 +1,6 @@
+package com.fares_elsadek.Readly.dtos;
+
+import java.util.Map;
+
+public record BookRatingDto(long count, Double average, Map<Integer, Long> histogram) {
+}
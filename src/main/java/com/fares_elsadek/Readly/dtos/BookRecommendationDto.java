@@ -0,0 +1,4 @@
+package com.fares_elsadek.Readly.dtos;
+
+public record BookRecommendationDto(String bookId, String title, String authorName, long coBorrowers, double score) {
+}
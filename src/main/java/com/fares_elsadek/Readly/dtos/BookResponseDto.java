@@ -7,7 +7,9 @@ public record BookResponseDto(
         String isbn,
         String synopsis,
         String bookCover,
+        CoverImagesDto coverImages,
         Boolean shareable,
-        UserDto owner
+        UserDto owner,
+        BookRatingDto rating
 ) {
 }
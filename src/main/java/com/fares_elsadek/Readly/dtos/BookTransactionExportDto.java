@@ -0,0 +1,14 @@
+package com.fares_elsadek.Readly.dtos;
+
+import java.time.LocalDateTime;
+
+public record BookTransactionExportDto(
+        String id,
+        String bookId,
+        String userId,
+        boolean returned,
+        boolean returnApproved,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+}
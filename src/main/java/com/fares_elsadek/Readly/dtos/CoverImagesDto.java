@@ -0,0 +1,9 @@
+package com.fares_elsadek.Readly.dtos;
+
+public record CoverImagesDto(
+        String originalUrl,
+        String smallUrl,
+        String mediumUrl,
+        String placeholderUrl
+) {
+}
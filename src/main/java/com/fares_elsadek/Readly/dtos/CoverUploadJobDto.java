@@ -0,0 +1,13 @@
+package com.fares_elsadek.Readly.dtos;
+
+import com.fares_elsadek.Readly.enums.CoverUploadStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CoverUploadJobDto(
+        String jobId,
+        String bookId,
+        CoverUploadStatus status,
+        String bookCover,
+        String error
+) {}
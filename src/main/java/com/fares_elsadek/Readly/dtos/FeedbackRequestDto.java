@@ -0,0 +1,17 @@
+package com.fares_elsadek.Readly.dtos;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record FeedbackRequestDto(
+        @NotNull(message = "Rating is required")
+        @Min(value = 1, message = "Rating must be between 1 and 5")
+        @Max(value = 5, message = "Rating must be between 1 and 5")
+        Integer note,
+
+        @Size(max = 2000, message = "Review must not exceed 2000 characters")
+        String comment
+) {
+}
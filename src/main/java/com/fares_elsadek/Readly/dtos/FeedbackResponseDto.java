@@ -0,0 +1,13 @@
+package com.fares_elsadek.Readly.dtos;
+
+import java.time.LocalDateTime;
+
+public record FeedbackResponseDto(
+        String id,
+        Double note,
+        String comment,
+        String bookId,
+        UserDto reviewer,
+        LocalDateTime createdAt
+) {
+}
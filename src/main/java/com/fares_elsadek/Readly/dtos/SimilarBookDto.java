@@ -0,0 +1,4 @@
+package com.fares_elsadek.Readly.dtos;
+
+public record SimilarBookDto(String bookId, String title, String authorName, double score) {
+}
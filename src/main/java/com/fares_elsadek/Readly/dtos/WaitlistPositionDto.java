@@ -0,0 +1,4 @@
+package com.fares_elsadek.Readly.dtos;
+
+public record WaitlistPositionDto(String bookId, long position, long waiting) {
+}
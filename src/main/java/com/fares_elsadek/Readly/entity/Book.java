@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.List;
 
@@ -24,9 +25,16 @@ public class Book extends Auditable {
     private String isbn;
     private String synopsis;
     private String bookCover;
+    private String bookFile;
     private boolean archived;
     private boolean shareable;
-    @ManyToOne(fetch = FetchType.EAGER)
+    @Version
+    @ColumnDefault("0")
+    private long version;
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "active_transaction_id")
+    private BookTransaction activeTransaction;
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id")
     private User owner;
     @OneToMany(mappedBy = "book")
@@ -0,0 +1,32 @@
+package com.fares_elsadek.Readly.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Running rating totals of one book. Rows are only ever changed through
+ * {@code BookRatingRepository.applyDelta}, which adds to the counters in a single upsert, so
+ * concurrent reviews never overwrite each other and never touch the versioned book row.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookRating {
+    @Id
+    private String bookId;
+    private long ratingCount;
+    private long ratingSum;
+    private long oneStar;
+    private long twoStars;
+    private long threeStars;
+    private long fourStars;
+    private long fiveStars;
+}
@@ -0,0 +1,39 @@
+package com.fares_elsadek.Readly.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
+
+/**
+ * Read-only view of every borrow, whichever tier it lives in: open and recently completed
+ * transactions in {@code book_transaction}, approved ones moved to the month-partitioned
+ * {@code book_transaction_archive} by {@code BookTransactionArchiveService}. A row is moved with a
+ * single statement, so a query never sees it in both tiers or in neither.
+ */
+@Entity
+@Immutable
+@Subselect("""
+        SELECT id, returned, return_approved, user_id, book_id, created_at, updated_at, created_by, updated_by
+        FROM book_transaction
+        UNION ALL
+        SELECT id, returned, return_approved, user_id, book_id, created_at, updated_at, created_by, updated_by
+        FROM book_transaction_archive
+        """)
+@Synchronize({"book_transaction", "book_transaction_archive"})
+@Getter
+@NoArgsConstructor
+public class BookTransactionHistory extends Auditable {
+    @Id
+    private String id;
+    private boolean returned;
+    private boolean returnApproved;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "userId")
+    private User user;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bookId")
+    private Book book;
+}
@@ -0,0 +1,31 @@
+package com.fares_elsadek.Readly.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * One user waiting for one book. The id doubles as the FIFO ticket, it is drawn from a
+ * sequence one value at a time so tickets are handed out in join order.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@SuperBuilder
+public class BookWaitlistEntry extends Auditable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_waitlist_ticket")
+    @SequenceGenerator(name = "book_waitlist_ticket", sequenceName = "book_waitlist_ticket_seq", allocationSize = 1)
+    private Long id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id")
+    private Book book;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+}
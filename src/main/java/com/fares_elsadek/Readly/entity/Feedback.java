@@ -18,8 +18,12 @@ public class Feedback extends Auditable{
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
     private Double note;
+    @Column(length = 2000)
     private String comment;
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id")
     private Book book;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
 }
@@ -0,0 +1,29 @@
+package com.fares_elsadek.Readly.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A content-addressed file of the upload store and the number of books referencing it. Rows are only
+ * changed through the upserts and counter updates of {@code StoredBlobRepository}, so concurrent
+ * uploads of the same content and concurrent cover changes never overwrite each other's counts.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StoredBlob {
+    @Id
+    private String blobKey;
+    private long refCount;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,9 @@
+package com.fares_elsadek.Readly.enums;
+
+public enum BookEventType {
+    BORROWED,
+    RETURNED,
+    RETURN_APPROVED,
+    SHAREABLE_CHANGED,
+    ARCHIVED_CHANGED
+}
@@ -0,0 +1,7 @@
+package com.fares_elsadek.Readly.enums;
+
+public enum CountMode {
+    NONE,
+    ESTIMATE,
+    EXACT
+}
@@ -0,0 +1,8 @@
+package com.fares_elsadek.Readly.enums;
+
+public enum CoverUploadStatus {
+    PENDING,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,57 @@
+package com.fares_elsadek.Readly.enums;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Derivatives generated for every stored cover, cropped to the 2:3 shape of a book cover. They are
+ * stored beside the original under a name derived from it, e.g. {@code front-<uuid>.small.jpg}.
+ */
+public enum CoverVariant {
+    SMALL(160, 240),
+    MEDIUM(320, 480),
+    PLACEHOLDER(16, 24);
+
+    private static final Pattern DERIVATIVE_NAME = Pattern.compile(".*\\.(small|medium|placeholder)\\.(jpg|png)");
+
+    private final int width;
+    private final int height;
+
+    CoverVariant(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public String fileName(String cover) {
+        int dot = extensionDot(cover);
+        var base = dot == -1 ? cover : cover.substring(0, dot);
+        return base + "." + name().toLowerCase(Locale.ROOT) + (isPng(cover) ? ".png" : ".jpg");
+    }
+
+    /** PNG and GIF covers may be transparent and keep PNG thumbnails; placeholders are always JPEG. */
+    public boolean isPng(String cover) {
+        if (this == PLACEHOLDER)
+            return false;
+        int dot = extensionDot(cover);
+        var extension = dot == -1 ? "" : cover.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return extension.equals("png") || extension.equals("gif");
+    }
+
+    public static boolean isDerivative(String fileName) {
+        return DERIVATIVE_NAME.matcher(fileName).matches();
+    }
+
+    // stored names end in "-<uuid>" plus the original extension, a dot before the uuid is part of the name
+    private static int extensionDot(String cover) {
+        int dot = cover.lastIndexOf('.');
+        return dot > cover.lastIndexOf('-') ? dot : -1;
+    }
+}
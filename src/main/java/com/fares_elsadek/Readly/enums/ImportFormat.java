@@ -0,0 +1,6 @@
+package com.fares_elsadek.Readly.enums;
+
+public enum ImportFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,4 @@
+package com.fares_elsadek.Readly.events;
+
+public record BookCreatedEvent(String bookId, String title, String authorName, String synopsis) {
+}
@@ -0,0 +1,24 @@
+package com.fares_elsadek.Readly.events;
+
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.enums.BookEventType;
+
+import java.time.Instant;
+
+/**
+ * A change to a book's lending state. The owner and the borrower (if any) always receive it,
+ * anyone else only when they watch the book, and then without the user ids.
+ */
+public record BookEvent(
+        BookEventType type,
+        String bookId,
+        String ownerId,
+        String borrowerId,
+        boolean available,
+        Instant occurredAt
+) {
+    public static BookEvent of(BookEventType type, Book book, String borrowerId) {
+        var available = book.getActiveTransaction() == null && book.isShareable() && !book.isArchived();
+        return new BookEvent(type, book.getId(), book.getOwner().getId(), borrowerId, available, Instant.now());
+    }
+}
@@ -0,0 +1,4 @@
+package com.fares_elsadek.Readly.events;
+
+public record WaitlistJoinedEvent(String bookId, String userId, long ticket) {
+}
@@ -0,0 +1,4 @@
+package com.fares_elsadek.Readly.events;
+
+public record WaitlistLeftEvent(String bookId, String userId) {
+}
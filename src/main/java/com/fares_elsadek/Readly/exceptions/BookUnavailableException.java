@@ -0,0 +1,7 @@
+package com.fares_elsadek.Readly.exceptions;
+
+public class BookUnavailableException extends RuntimeException{
+    public BookUnavailableException(String message) {
+        super(message);
+    }
+}
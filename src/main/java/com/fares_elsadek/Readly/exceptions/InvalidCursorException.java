@@ -0,0 +1,7 @@
+package com.fares_elsadek.Readly.exceptions;
+
+public class InvalidCursorException extends RuntimeException{
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.fares_elsadek.Readly.exceptions;
+
+public class ServiceBusyException extends RuntimeException{
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -1,14 +1,18 @@
 package com.fares_elsadek.Readly.mapper;
 
+import com.fares_elsadek.Readly.dtos.BookRatingDto;
 import com.fares_elsadek.Readly.dtos.BookRequestDto;
 import com.fares_elsadek.Readly.dtos.BookResponseDto;
 import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.repository.projection.BookSummary;
 import org.mapstruct.InheritInverseConfiguration;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 
-@Mapper(componentModel = "spring")
+import java.util.LinkedHashMap;
+
+@Mapper(componentModel = "spring", uses = CoverImagesMapper.class)
 public interface BookMapper {
     @InheritInverseConfiguration
     Book toEntity(BookRequestDto bookRequestDto);
@@ -18,6 +22,30 @@ public interface BookMapper {
             @Mapping(source = "owner.lastname",target = "owner.lastname"),
             @Mapping(source = "owner.id",target = "owner.id"),
             @Mapping(source = "owner.email",target = "owner.email"),
+            @Mapping(source = "bookCover",target = "coverImages"),
+            @Mapping(target = "rating", ignore = true),
     })
     BookResponseDto toBookResponse(Book book);
+
+    @Mappings({
+            @Mapping(source = "ownerFirstname",target = "owner.firstname"),
+            @Mapping(source = "ownerLastname",target = "owner.lastname"),
+            @Mapping(source = "ownerId",target = "owner.id"),
+            @Mapping(source = "ownerEmail",target = "owner.email"),
+            @Mapping(source = "bookCover",target = "coverImages"),
+            @Mapping(source = "summary",target = "rating"),
+    })
+    BookResponseDto toBookResponse(BookSummary summary);
+
+    default BookRatingDto toRating(BookSummary summary) {
+        var histogram = new LinkedHashMap<Integer, Long>();
+        histogram.put(1, summary.oneStar());
+        histogram.put(2, summary.twoStars());
+        histogram.put(3, summary.threeStars());
+        histogram.put(4, summary.fourStars());
+        histogram.put(5, summary.fiveStars());
+        Double average = summary.ratingCount() == 0 ? null
+                : Math.round(100.0 * summary.ratingSum() / summary.ratingCount()) / 100.0;
+        return new BookRatingDto(summary.ratingCount(), average, histogram);
+    }
 }
@@ -0,0 +1,49 @@
+package com.fares_elsadek.Readly.mapper;
+
+import com.fares_elsadek.Readly.dtos.CoverImagesDto;
+import com.fares_elsadek.Readly.enums.CoverVariant;
+import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Cover URLs are host relative, cached book pages stay valid behind any host name. A derivative that
+ * is not on disk yet, e.g. of a legacy cover the startup backfill has not reached, is replaced by the
+ * original cover rather than handed out as a link that fails.
+ */
+@Component
+public class CoverImagesMapper {
+
+    private final String filesPath;
+    private final UploadFilesService uploadFilesService;
+
+    public CoverImagesMapper(@Value("${server.servlet.context-path:}") String contextPath,
+                             UploadFilesService uploadFilesService) {
+        this.filesPath = contextPath + "/book/cover/files/";
+        this.uploadFilesService = uploadFilesService;
+    }
+
+    public CoverImagesDto toCoverImages(String bookCover) {
+        if (bookCover == null)
+            return null;
+        var original = url(bookCover);
+        return new CoverImagesDto(
+                original,
+                derivativeUrl(bookCover, CoverVariant.SMALL, original),
+                derivativeUrl(bookCover, CoverVariant.MEDIUM, original),
+                derivativeUrl(bookCover, CoverVariant.PLACEHOLDER, original));
+    }
+
+    private String derivativeUrl(String bookCover, CoverVariant variant, String original) {
+        var derivative = variant.fileName(bookCover);
+        return Files.exists(uploadFilesService.locate(derivative)) ? url(derivative) : original;
+    }
+
+    private String url(String filename) {
+        return filesPath + UriUtils.encodePathSegment(filename, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,29 @@
+package com.fares_elsadek.Readly.mapper;
+
+import com.fares_elsadek.Readly.dtos.FeedbackResponseDto;
+import com.fares_elsadek.Readly.entity.Feedback;
+import com.fares_elsadek.Readly.repository.projection.ReviewSummary;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Mappings;
+
+@Mapper(componentModel = "spring")
+public interface FeedbackMapper {
+
+    @Mappings({
+            @Mapping(source = "book.id",target = "bookId"),
+            @Mapping(source = "user.firstname",target = "reviewer.firstname"),
+            @Mapping(source = "user.lastname",target = "reviewer.lastname"),
+            @Mapping(source = "user.id",target = "reviewer.id"),
+            @Mapping(source = "user.email",target = "reviewer.email"),
+    })
+    FeedbackResponseDto toDto(Feedback feedback);
+
+    @Mappings({
+            @Mapping(source = "reviewerFirstname",target = "reviewer.firstname"),
+            @Mapping(source = "reviewerLastname",target = "reviewer.lastname"),
+            @Mapping(source = "reviewerId",target = "reviewer.id"),
+            @Mapping(source = "reviewerEmail",target = "reviewer.email"),
+    })
+    FeedbackResponseDto toDto(ReviewSummary review);
+}
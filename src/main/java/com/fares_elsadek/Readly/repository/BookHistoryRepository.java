@@ -1,58 +1,171 @@
 package com.fares_elsadek.Readly.repository;
 
+import com.fares_elsadek.Readly.dtos.BookTransactionExportDto;
 import com.fares_elsadek.Readly.entity.BookTransaction;
+import com.fares_elsadek.Readly.entity.BookTransactionHistory;
+import com.fares_elsadek.Readly.repository.projection.BookSummary;
+import com.fares_elsadek.Readly.repository.projection.BorrowRecord;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface BookHistoryRepository extends JpaRepository<BookTransaction,String> {
+    String BORROWED_SUMMARY_SELECT = """
+            SELECT new com.fares_elsadek.Readly.repository.projection.BookSummary(
+                book.id, book.title, book.authorName, book.isbn, book.synopsis, book.bookCover, book.shareable,
+                owner.id, owner.firstname, owner.lastname, owner.email, transaction.createdAt, transaction.id,
+                COALESCE(rating.ratingCount, 0L), COALESCE(rating.ratingSum, 0L),
+                COALESCE(rating.oneStar, 0L), COALESCE(rating.twoStars, 0L), COALESCE(rating.threeStars, 0L),
+                COALESCE(rating.fourStars, 0L), COALESCE(rating.fiveStars, 0L))
+            FROM BookTransactionHistory transaction JOIN transaction.book book LEFT JOIN book.owner owner
+            LEFT JOIN BookRating rating ON rating.bookId = book.id
+            """;
+
+    @Query(value = BORROWED_SUMMARY_SELECT + """
+            WHERE transaction.user.id = :userId
+            """, countQuery = """
+            SELECT COUNT(transaction) FROM BookTransactionHistory transaction WHERE transaction.user.id = :userId
+            """)
+    Page<BookSummary> findBorrowedSummaries(String userId, Pageable pageable);
+
+    @Query("""
+            SELECT COUNT(transaction) FROM BookTransactionHistory transaction WHERE transaction.user.id = :userId
+            """)
+    long countByUserId(String userId);
+
     @Query("""
-            SELECT transaction FROM BookTransaction transaction WHERE transaction.user.id = :userId 
+            SELECT CASE WHEN COUNT(transaction) > 0 THEN true ELSE false END
+            FROM BookTransactionHistory transaction
+            WHERE transaction.book.id = :bookId AND transaction.user.id = :userId
             """)
-    Page<BookTransaction> findAllBorrowedBooks(String userId, Pageable pageable);
+    boolean existsByBookIdAndUserId(String bookId, String userId);
 
+    @Query(BORROWED_SUMMARY_SELECT + """
+            WHERE transaction.user.id = :userId
+            ORDER BY transaction.createdAt, transaction.id
+            """)
+    List<BookSummary> findFirstBorrowedPage(String userId, Limit limit);
+
+    @Query(BORROWED_SUMMARY_SELECT + """
+            WHERE transaction.user.id = :userId AND
+            transaction.createdAt >= :createdAt AND
+            (transaction.createdAt > :createdAt OR transaction.id > :id)
+            ORDER BY transaction.createdAt, transaction.id
+            """)
+    List<BookSummary> findBorrowedPageAfter(String userId, LocalDateTime createdAt, String id, Limit limit);
+
+    @EntityGraph(attributePaths = {"book", "book.owner"})
     @Query("""
-            SELECT transaction FROM BookTransaction 
-            transaction WHERE transaction.user.id = :userId 
+            SELECT transaction FROM BookTransactionHistory
+            transaction WHERE transaction.user.id = :userId
             AND transaction.returned = true
             AND transaction.returnApproved = true
             """)
-    Page<BookTransaction> findAllReturnedBooks(String userId, Pageable pageable);
+    Page<BookTransactionHistory> findAllReturnedBooks(String userId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"book", "book.owner", "user"})
     @Query("""
-            SELECT (COUNT(*)) AS isBorrowed
+            SELECT transaction
             FROM BookTransaction transaction WHERE
-            transaction.user.id = :userId AND
             transaction.book.id = :bookId AND
+            transaction.user.id = :userId AND
             transaction.returned = false
             """)
-    boolean isAlreadyBorrowedByCurrentUser(String userId,String bookId);
+    Optional<BookTransaction> findByBookIdAndUserId(String userId, String bookId);
 
     @Query("""
-            SELECT (COUNT(*)) AS isBorrowed
+            SELECT COUNT(transaction) > 0
             FROM BookTransaction transaction WHERE
             transaction.book.id = :bookId AND
+            transaction.user.id = :userId AND
             transaction.returned = false
             """)
-    boolean isAlreadyBorrowed(String bookId);
-
+    boolean existsActiveBorrow(String userId, String bookId);
 
+    @EntityGraph(attributePaths = {"book", "user"})
     @Query("""
             SELECT transaction
             FROM BookTransaction transaction WHERE
             transaction.book.id = :bookId AND
-            transaction.user.id = :userId AND
-            transaction.returned = false
+            transaction.returned = true AND
+            transaction.returnApproved = false
+            ORDER BY transaction.createdAt, transaction.id
             """)
-    Optional<BookTransaction> findByBookIdAndUserId(String userId, String bookId);
+    List<BookTransaction> findReturnsAwaitingApproval(String bookId, Limit limit);
 
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT new com.fares_elsadek.Readly.dtos.BookTransactionExportDto(
+                transaction.id, transaction.book.id, transaction.user.id,
+                transaction.returned, transaction.returnApproved,
+                transaction.createdAt, transaction.updatedAt)
+            FROM BookTransactionHistory transaction
+            """)
+    Stream<BookTransactionExportDto> streamAllForExport();
 
+    @Query("""
+            SELECT new com.fares_elsadek.Readly.repository.projection.BorrowRecord(
+                transaction.id, transaction.createdAt, transaction.user.id, book.id, book.title, book.authorName)
+            FROM BookTransactionHistory transaction JOIN transaction.book book
+            WHERE transaction.createdAt < :before
+            ORDER BY transaction.createdAt, transaction.id
+            """)
+    List<BorrowRecord> findFirstBorrowRecords(LocalDateTime before, Limit limit);
 
+    @Query("""
+            SELECT new com.fares_elsadek.Readly.repository.projection.BorrowRecord(
+                transaction.id, transaction.createdAt, transaction.user.id, book.id, book.title, book.authorName)
+            FROM BookTransactionHistory transaction JOIN transaction.book book
+            WHERE transaction.createdAt < :before AND
+            transaction.createdAt >= :createdAt AND
+            (transaction.createdAt > :createdAt OR transaction.id > :id)
+            ORDER BY transaction.createdAt, transaction.id
+            """)
+    List<BorrowRecord> findBorrowRecordsAfter(LocalDateTime createdAt, String id, LocalDateTime before, Limit limit);
 
+    @Query("""
+            SELECT MIN(transaction.createdAt) FROM BookTransaction transaction
+            WHERE transaction.returnApproved = true AND transaction.updatedAt < :approvedBefore
+            """)
+    LocalDateTime findOldestArchivableCreatedAt(LocalDateTime approvedBefore);
 
+    /**
+     * Moves up to {@code batchSize} approved transactions created in [{@code from}, {@code to}) to
+     * the archive in one statement. Rows still referenced as a book's active loan are left alone,
+     * and rows locked by another node's archiver are skipped rather than waited on.
+     */
+    @Modifying
+    @Query(value = """
+            WITH moved AS (
+                DELETE FROM book_transaction WHERE id IN (
+                    SELECT transaction.id FROM book_transaction transaction
+                    WHERE transaction.return_approved = true AND transaction.updated_at < :approvedBefore
+                    AND transaction.created_at >= :from AND transaction.created_at < :to
+                    AND NOT EXISTS (SELECT 1 FROM book WHERE book.active_transaction_id = transaction.id)
+                    LIMIT :batchSize
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING id, returned, return_approved, user_id, book_id, created_at, updated_at, created_by, updated_by
+            )
+            INSERT INTO book_transaction_archive
+                (id, returned, return_approved, user_id, book_id, created_at, updated_at, created_by, updated_by)
+            SELECT id, returned, return_approved, user_id, book_id, created_at, updated_at, created_by, updated_by
+            FROM moved
+            """, nativeQuery = true)
+    int archiveApproved(LocalDateTime approvedBefore, LocalDateTime from, LocalDateTime to, int batchSize);
 }
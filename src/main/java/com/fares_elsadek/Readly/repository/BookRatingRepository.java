@@ -0,0 +1,27 @@
+package com.fares_elsadek.Readly.repository;
+
+import com.fares_elsadek.Readly.entity.BookRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BookRatingRepository extends JpaRepository<BookRating,String> {
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO book_rating (book_id, rating_count, rating_sum, one_star, two_stars, three_stars, four_stars, five_stars)
+            VALUES (:bookId, :count, :sum, :oneStar, :twoStars, :threeStars, :fourStars, :fiveStars)
+            ON CONFLICT (book_id) DO UPDATE SET
+                rating_count = book_rating.rating_count + EXCLUDED.rating_count,
+                rating_sum = book_rating.rating_sum + EXCLUDED.rating_sum,
+                one_star = book_rating.one_star + EXCLUDED.one_star,
+                two_stars = book_rating.two_stars + EXCLUDED.two_stars,
+                three_stars = book_rating.three_stars + EXCLUDED.three_stars,
+                four_stars = book_rating.four_stars + EXCLUDED.four_stars,
+                five_stars = book_rating.five_stars + EXCLUDED.five_stars
+            """, nativeQuery = true)
+    void applyDelta(String bookId, long count, long sum,
+                    long oneStar, long twoStars, long threeStars, long fourStars, long fiveStars);
+}
@@ -1,12 +1,172 @@
 package com.fares_elsadek.Readly.repository;
 
+import com.fares_elsadek.Readly.dtos.BookExportDto;
 import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.repository.projection.BookSearchHit;
+import com.fares_elsadek.Readly.repository.projection.BookSummary;
+import com.fares_elsadek.Readly.repository.projection.BookText;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface BookRepository extends JpaRepository<Book,String> {
-     Page<Book> findAllByCreatedByEquals(String userId, Pageable pageable);
+     @Override
+     @EntityGraph(attributePaths = "owner")
+     Optional<Book> findById(String id);
+
+     String SUMMARY_SELECT = """
+            SELECT new com.fares_elsadek.Readly.repository.projection.BookSummary(
+                book.id, book.title, book.authorName, book.isbn, book.synopsis, book.bookCover, book.shareable,
+                owner.id, owner.firstname, owner.lastname, owner.email, book.createdAt, book.id,
+                COALESCE(rating.ratingCount, 0L), COALESCE(rating.ratingSum, 0L),
+                COALESCE(rating.oneStar, 0L), COALESCE(rating.twoStars, 0L), COALESCE(rating.threeStars, 0L),
+                COALESCE(rating.fourStars, 0L), COALESCE(rating.fiveStars, 0L))
+            FROM Book book LEFT JOIN book.owner owner LEFT JOIN BookRating rating ON rating.bookId = book.id
+            """;
+
+     @Query(SUMMARY_SELECT + """
+            WHERE book.id = :id
+            """)
+     Optional<BookSummary> findSummaryById(String id);
+
+     @Query("SELECT book.owner.id FROM Book book WHERE book.id = :id")
+     Optional<String> findOwnerIdById(String id);
+
+     @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(book) FROM Book book")
+     Page<BookSummary> findAllSummaries(Pageable pageable);
+
+     @Query(value = SUMMARY_SELECT + """
+            WHERE book.createdBy = :userId
+            """, countQuery = """
+            SELECT COUNT(book) FROM Book book WHERE book.createdBy = :userId
+            """)
+     Page<BookSummary> findSummariesByOwner(String userId, Pageable pageable);
+
+     @Query(SUMMARY_SELECT + """
+            WHERE book.id IN (:ids)
+            """)
+     List<BookSummary> findSummariesByIdIn(Collection<String> ids);
+
+     long countByCreatedByEquals(String userId);
+
+     @Query(SUMMARY_SELECT + """
+            ORDER BY book.createdAt, book.id
+            """)
+     List<BookSummary> findFirstPage(Limit limit);
+
+     @Query(SUMMARY_SELECT + """
+            WHERE book.createdAt >= :createdAt AND
+            (book.createdAt > :createdAt OR book.id > :id)
+            ORDER BY book.createdAt, book.id
+            """)
+     List<BookSummary> findPageAfter(LocalDateTime createdAt, String id, Limit limit);
+
+     @Query(SUMMARY_SELECT + """
+            WHERE book.createdBy = :userId
+            ORDER BY book.createdAt, book.id
+            """)
+     List<BookSummary> findFirstPageByOwner(String userId, Limit limit);
+
+     @Query(SUMMARY_SELECT + """
+            WHERE book.createdBy = :userId AND
+            book.createdAt >= :createdAt AND
+            (book.createdAt > :createdAt OR book.id > :id)
+            ORDER BY book.createdAt, book.id
+            """)
+     List<BookSummary> findPageByOwnerAfter(String userId, LocalDateTime createdAt, String id, Limit limit);
+
+     @Query(value = """
+            SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE relname = 'book'
+            """, nativeQuery = true)
+     long estimateCount();
+
+     @Modifying
+     @Query(value = """
+            UPDATE book SET search_vector =
+                setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+                setweight(to_tsvector('english', coalesce(author_name, '')), 'B') ||
+                setweight(to_tsvector('english', coalesce(synopsis, '')), 'C')
+            WHERE id = :bookId
+            """, nativeQuery = true)
+     void refreshSearchVector(String bookId);
+
+     @Modifying
+     @Query(value = """
+            UPDATE book SET search_vector =
+                setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+                setweight(to_tsvector('english', coalesce(author_name, '')), 'B') ||
+                setweight(to_tsvector('english', coalesce(synopsis, '')), 'C')
+            WHERE id IN (:bookIds)
+            """, nativeQuery = true)
+     void refreshSearchVectors(Collection<String> bookIds);
+
+     @Query(value = """
+            SELECT hit.id AS id, hit.rank AS rank FROM (
+                SELECT book.id AS id, ts_rank(book.search_vector, query) AS rank
+                FROM book, websearch_to_tsquery('english', :query) query
+                WHERE book.search_vector @@ query
+                AND book.shareable = true
+                AND book.archived = false
+            ) hit
+            ORDER BY hit.rank DESC, hit.id
+            """, nativeQuery = true)
+     List<BookSearchHit> searchFirstPage(String query, Limit limit);
+
+     @Query(value = """
+            SELECT hit.id AS id, hit.rank AS rank FROM (
+                SELECT book.id AS id, ts_rank(book.search_vector, query) AS rank
+                FROM book, websearch_to_tsquery('english', :query) query
+                WHERE book.search_vector @@ query
+                AND book.shareable = true
+                AND book.archived = false
+            ) hit
+            WHERE hit.rank < :rank OR (hit.rank = :rank AND hit.id > :id)
+            ORDER BY hit.rank DESC, hit.id
+            """, nativeQuery = true)
+     List<BookSearchHit> searchPageAfter(String query, float rank, String id, Limit limit);
+
+     @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+     @Query("""
+            SELECT new com.fares_elsadek.Readly.dtos.BookExportDto(
+                book.id, book.title, book.authorName, book.isbn, book.synopsis, book.bookCover,
+                book.shareable, book.archived, book.owner.id, book.createdAt, book.updatedAt)
+            FROM Book book
+            """)
+     Stream<BookExportDto> streamAllForExport();
+
+     @Query("""
+            SELECT new com.fares_elsadek.Readly.repository.projection.BookText(
+                book.id, book.createdAt, book.title, book.authorName, book.synopsis)
+            FROM Book book
+            WHERE book.createdAt < :before
+            ORDER BY book.createdAt, book.id
+            """)
+     List<BookText> findFirstBookTexts(LocalDateTime before, Limit limit);
+
+     @Query("""
+            SELECT new com.fares_elsadek.Readly.repository.projection.BookText(
+                book.id, book.createdAt, book.title, book.authorName, book.synopsis)
+            FROM Book book
+            WHERE book.createdAt < :before AND
+            book.createdAt >= :createdAt AND
+            (book.createdAt > :createdAt OR book.id > :id)
+            ORDER BY book.createdAt, book.id
+            """)
+     List<BookText> findBookTextsAfter(LocalDateTime createdAt, String id, LocalDateTime before, Limit limit);
 }
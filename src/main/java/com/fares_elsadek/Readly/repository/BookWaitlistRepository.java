@@ -0,0 +1,52 @@
+package com.fares_elsadek.Readly.repository;
+
+import com.fares_elsadek.Readly.entity.BookWaitlistEntry;
+import com.fares_elsadek.Readly.repository.projection.WaitlistTicket;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BookWaitlistRepository extends JpaRepository<BookWaitlistEntry,Long> {
+
+    @Query("""
+            SELECT entry.id FROM BookWaitlistEntry entry
+            WHERE entry.book.id = :bookId AND entry.user.id = :userId
+            """)
+    Optional<Long> findTicket(String bookId, String userId);
+
+    @Query("""
+            SELECT new com.fares_elsadek.Readly.repository.projection.WaitlistTicket(entry.id, entry.user.id)
+            FROM BookWaitlistEntry entry WHERE entry.book.id = :bookId
+            """)
+    List<WaitlistTicket> findTickets(String bookId);
+
+    @EntityGraph(attributePaths = "user")
+    @Query("""
+            SELECT entry FROM BookWaitlistEntry entry
+            WHERE entry.book.id = :bookId
+            ORDER BY entry.id
+            """)
+    List<BookWaitlistEntry> findHead(String bookId, Limit limit);
+
+    @Query("""
+            SELECT COUNT(entry) FROM BookWaitlistEntry entry
+            WHERE entry.book.id = :bookId AND entry.id < :ticket
+            """)
+    long countAhead(String bookId, long ticket);
+
+    long countByBookId(String bookId);
+
+    @Modifying
+    @Query("""
+            DELETE FROM BookWaitlistEntry entry
+            WHERE entry.book.id = :bookId AND entry.user.id = :userId
+            """)
+    int deleteEntry(String bookId, String userId);
+}
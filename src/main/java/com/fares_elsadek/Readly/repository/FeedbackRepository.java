@@ -0,0 +1,44 @@
+package com.fares_elsadek.Readly.repository;
+
+import com.fares_elsadek.Readly.entity.Feedback;
+import com.fares_elsadek.Readly.repository.projection.ReviewSummary;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FeedbackRepository extends JpaRepository<Feedback,String> {
+    String REVIEW_SELECT = """
+            SELECT new com.fares_elsadek.Readly.repository.projection.ReviewSummary(
+                feedback.id, feedback.note, feedback.comment, feedback.book.id,
+                reviewer.id, reviewer.firstname, reviewer.lastname, reviewer.email,
+                feedback.createdAt)
+            FROM Feedback feedback LEFT JOIN feedback.user reviewer
+            """;
+
+    @Override
+    @EntityGraph(attributePaths = {"book", "user"})
+    Optional<Feedback> findById(String id);
+
+    boolean existsByBookIdAndUserId(String bookId, String userId);
+
+    @Query(REVIEW_SELECT + """
+            WHERE feedback.book.id = :bookId
+            ORDER BY feedback.createdAt DESC, feedback.id DESC
+            """)
+    List<ReviewSummary> findFirstReviewPage(String bookId, Limit limit);
+
+    @Query(REVIEW_SELECT + """
+            WHERE feedback.book.id = :bookId AND
+            feedback.createdAt <= :createdAt AND
+            (feedback.createdAt < :createdAt OR feedback.id < :id)
+            ORDER BY feedback.createdAt DESC, feedback.id DESC
+            """)
+    List<ReviewSummary> findReviewPageBefore(String bookId, LocalDateTime createdAt, String id, Limit limit);
+}
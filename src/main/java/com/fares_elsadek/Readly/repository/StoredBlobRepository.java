@@ -0,0 +1,41 @@
+package com.fares_elsadek.Readly.repository;
+
+import com.fares_elsadek.Readly.entity.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob,String> {
+
+    /** Registers a stored blob, or renews the grace period of one that is stored already. */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO stored_blob (blob_key, ref_count, updated_at) VALUES (:blobKey, 0, now())
+            ON CONFLICT (blob_key) DO UPDATE SET updated_at = now()
+            """, nativeQuery = true)
+    void touch(String blobKey);
+
+    @Modifying
+    @Query(value = """
+            UPDATE stored_blob SET ref_count = ref_count + :delta, updated_at = now()
+            WHERE blob_key = :blobKey
+            """, nativeQuery = true)
+    int addReferences(String blobKey, long delta);
+
+    /** Locks blobs unreferenced since {@code before}; a concurrent {@link #touch} waits until they are gone. */
+    @Query(value = """
+            SELECT blob_key FROM stored_blob
+            WHERE ref_count = 0 AND updated_at < :before
+            ORDER BY updated_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<String> lockUnreferenced(LocalDateTime before, int limit);
+}
@@ -1,13 +1,23 @@
 package com.fares_elsadek.Readly.repository;
 
 import com.fares_elsadek.Readly.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User,String> {
+    // spelled out with lower() to match idx_user_email_lower, derived IgnoreCase queries compare upper()
+    @EntityGraph(attributePaths = "roles")
+    @Query("SELECT user FROM User user WHERE lower(user.email) = lower(:email)")
     Optional<User> findByEmailIgnoreCase(String email);
+
+    @Query("""
+            SELECT CASE WHEN COUNT(user) > 0 THEN true ELSE false END
+            FROM User user WHERE lower(user.email) = lower(:email)
+            """)
     boolean existsByEmailIgnoreCase(String email);
 }
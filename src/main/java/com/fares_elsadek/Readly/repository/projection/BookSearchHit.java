@@ -0,0 +1,6 @@
+package com.fares_elsadek.Readly.repository.projection;
+
+public interface BookSearchHit {
+    String getId();
+    Float getRank();
+}
@@ -0,0 +1,33 @@
+package com.fares_elsadek.Readly.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat read model holding exactly the columns {@code BookResponseDto} needs, selected with a single
+ * join on the owner. {@code cursorCreatedAt}/{@code cursorId} carry the keyset position of the row
+ * the listing is ordered by, which is the borrow transaction rather than the book for borrowed lists.
+ * The rating columns come from the maintained {@code book_rating} totals and are zero for unrated books.
+ */
+public record BookSummary(
+        String id,
+        String title,
+        String authorName,
+        String isbn,
+        String synopsis,
+        String bookCover,
+        boolean shareable,
+        String ownerId,
+        String ownerFirstname,
+        String ownerLastname,
+        String ownerEmail,
+        LocalDateTime cursorCreatedAt,
+        String cursorId,
+        long ratingCount,
+        long ratingSum,
+        long oneStar,
+        long twoStars,
+        long threeStars,
+        long fourStars,
+        long fiveStars
+) {
+}
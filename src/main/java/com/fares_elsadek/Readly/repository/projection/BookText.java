@@ -0,0 +1,13 @@
+package com.fares_elsadek.Readly.repository.projection;
+
+import java.time.LocalDateTime;
+
+/** The text columns of a book as fed to the content similarity index, with its keyset position. */
+public record BookText(
+        String id,
+        LocalDateTime createdAt,
+        String title,
+        String authorName,
+        String synopsis
+) {
+}
@@ -0,0 +1,17 @@
+package com.fares_elsadek.Readly.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * One borrow as fed to the co-borrow recommender, carrying the book's display columns so
+ * recommendations can be served without going back to the database.
+ */
+public record BorrowRecord(
+        String transactionId,
+        LocalDateTime createdAt,
+        String userId,
+        String bookId,
+        String title,
+        String authorName
+) {
+}
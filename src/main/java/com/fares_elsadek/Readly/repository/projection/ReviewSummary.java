@@ -0,0 +1,16 @@
+package com.fares_elsadek.Readly.repository.projection;
+
+import java.time.LocalDateTime;
+
+public record ReviewSummary(
+        String id,
+        Double note,
+        String comment,
+        String bookId,
+        String reviewerId,
+        String reviewerFirstname,
+        String reviewerLastname,
+        String reviewerEmail,
+        LocalDateTime createdAt
+) {
+}
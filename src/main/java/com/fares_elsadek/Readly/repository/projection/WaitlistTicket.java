@@ -0,0 +1,4 @@
+package com.fares_elsadek.Readly.repository.projection;
+
+public record WaitlistTicket(long ticket, String userId) {
+}
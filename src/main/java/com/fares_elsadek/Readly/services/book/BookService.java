@@ -4,7 +4,8 @@ import com.fares_elsadek.Readly.dtos.ApiResponse;
 import com.fares_elsadek.Readly.dtos.BookHistoryDto;
 import com.fares_elsadek.Readly.dtos.BookRequestDto;
 import com.fares_elsadek.Readly.dtos.BookResponseDto;
-import org.springframework.web.multipart.MultipartFile;
+import com.fares_elsadek.Readly.dtos.CursorPageDto;
+import com.fares_elsadek.Readly.enums.CountMode;
 
 import java.util.List;
 
@@ -14,10 +15,13 @@ public interface BookService {
     public ApiResponse<List<BookResponseDto>> getAllBooks(int page,int size);
     public ApiResponse<List<BookResponseDto>> findAllByOwner(int page,int size);
     public ApiResponse<List<BookResponseDto>> findAllBorrowedBooks(int page,int size);
+    public ApiResponse<CursorPageDto<BookResponseDto>> scrollAllBooks(String cursor, int size, CountMode countMode);
+    public ApiResponse<CursorPageDto<BookResponseDto>> scrollOwnerBooks(String cursor, int size, CountMode countMode);
+    public ApiResponse<CursorPageDto<BookResponseDto>> scrollBorrowedBooks(String cursor, int size, CountMode countMode);
+    public ApiResponse<CursorPageDto<BookResponseDto>> searchBooks(String query, String cursor, int size);
     public ApiResponse<BookResponseDto> updateShareableStatus(String bookId);
     public  ApiResponse<BookResponseDto> updateArchivedStatus(String bookId);
     public ApiResponse<BookHistoryDto> borrowBook(String bookId);
     public ApiResponse<BookHistoryDto> returnBorrowBook(String bookId);
     public ApiResponse<BookHistoryDto> approveReturnBorrowBook(String bookId);
-    public ApiResponse<BookResponseDto> uploadBookCoverPicture(String bookId, MultipartFile coverImage);
 }
@@ -1,11 +1,18 @@
 package com.fares_elsadek.Readly.services.book;
 
+import com.fares_elsadek.Readly.config.caching.CacheGenerations;
 import com.fares_elsadek.Readly.dtos.ApiResponse;
 import com.fares_elsadek.Readly.dtos.BookHistoryDto;
 import com.fares_elsadek.Readly.dtos.BookRequestDto;
 import com.fares_elsadek.Readly.dtos.BookResponseDto;
+import com.fares_elsadek.Readly.dtos.CursorPageDto;
 import com.fares_elsadek.Readly.entity.BookTransaction;
+import com.fares_elsadek.Readly.enums.BookEventType;
+import com.fares_elsadek.Readly.enums.CountMode;
+import com.fares_elsadek.Readly.events.BookCreatedEvent;
+import com.fares_elsadek.Readly.events.BookEvent;
 import com.fares_elsadek.Readly.exceptions.AccessDeniedException;
+import com.fares_elsadek.Readly.exceptions.BookUnavailableException;
 import com.fares_elsadek.Readly.exceptions.InvalidTokenException;
 import com.fares_elsadek.Readly.exceptions.NotFoundException;
 import com.fares_elsadek.Readly.mapper.BookHistoryMapper;
@@ -13,23 +20,30 @@ import com.fares_elsadek.Readly.mapper.BookMapper;
 import com.fares_elsadek.Readly.repository.BookHistoryRepository;
 import com.fares_elsadek.Readly.repository.BookRepository;
 import com.fares_elsadek.Readly.repository.UserRepository;
-import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import com.fares_elsadek.Readly.repository.projection.BookSearchHit;
+import com.fares_elsadek.Readly.repository.projection.BookSummary;
+import com.fares_elsadek.Readly.services.waitlist.BookWaitlistService;
+import com.fares_elsadek.Readly.utils.CursorCodec;
 import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -37,24 +51,32 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService{
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final String BOOK_ALREADY_BORROWED =
+            "This book is currently borrowed by another user. Please try again later when it becomes available.";
+
     private final BookRepository bookRepository;
     private final BookHistoryRepository bookHistoryRepository;
     private final BookMapper bookMapper;
     private final UserRepository userRepository;
     private final BookHistoryMapper bookHistoryMapper;
-    private final UploadFilesService uploadFilesService;
+    private final CursorCodec cursorCodec;
+    private final BookWaitlistService bookWaitlistService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheGenerations cacheGenerations;
 
     @Override
-    @Caching(evict = {
-            @CacheEvict(value = "books",allEntries = true),
-            @CacheEvict(value = "user-books-#{#root.target.getUserId()}" , allEntries = true)
-    })
+    @Transactional
     public ApiResponse<BookResponseDto> saveBook(BookRequestDto bookRequest) {
         var entity = bookMapper.toEntity(bookRequest);
         entity.setOwner(userRepository.findById(getUserId()).orElseThrow(
                 () -> new NotFoundException("User", getUserId())
         ));
-        var savedBook = bookRepository.save(entity);
+        var savedBook = bookRepository.saveAndFlush(entity);
+        bookRepository.refreshSearchVector(savedBook.getId());
+        eventPublisher.publishEvent(new BookCreatedEvent(savedBook.getId(), savedBook.getTitle(),
+                savedBook.getAuthorName(), savedBook.getSynopsis()));
+        cacheGenerations.bumpCatalog();
 
         if(StringUtils.hasText(savedBook.getId())){
             var dto = bookMapper.toBookResponse(savedBook);
@@ -65,25 +87,27 @@ public class BookServiceImpl implements BookService{
     }
 
     @Override
-    @Cacheable(value = "books" , key = "#bookId" , unless = "#result.data == null")
+    @Cacheable(value = "books" , key = "@cacheGenerations.bookKey(#bookId)" , unless = "#result.data == null")
+    @Transactional(readOnly = true)
     public ApiResponse<BookResponseDto> getBookById(String bookId) {
 
-        var entity = bookRepository.findById(bookId).orElseThrow(
+        var summary = bookRepository.findSummaryById(bookId).orElseThrow(
                 () -> new NotFoundException("Book", bookId)
         );
 
-        var dto = bookMapper.toBookResponse(entity);
+        var dto = bookMapper.toBookResponse(summary);
         return ApiResponse.success("Book details retrieved successfully.", dto);
 
     }
 
     @Override
-    @Cacheable(value = "books", key = "'all_books_' + #page + '_' + #size",
+    @Cacheable(value = "books", key = "@cacheGenerations.catalogKey('all_books_' + #page + '_' + #size)",
                 unless = "#result.data == null || #result.data.isEmpty()")
+    @Transactional(readOnly = true)
     public ApiResponse<List<BookResponseDto>> getAllBooks(int page, int size) {
 
         Pageable pageable = PageRequest.of(page, size);
-        var entities = bookRepository.findAll(pageable);
+        var entities = bookRepository.findAllSummaries(pageable);
 
         List<BookResponseDto> bookDtos = entities.getContent().stream()
                 .map(bookMapper::toBookResponse)
@@ -99,13 +123,14 @@ public class BookServiceImpl implements BookService{
     }
 
     @Override
-    @Cacheable(value = "user-books-#{#root.target.getUserId()}", key = "'owner_' + #root.target.getUserId() + '_' + #page + '_' + #size",
+    @Cacheable(value = "user-books", key = "@cacheGenerations.userKey(#root.target.getUserId(), 'owner_' + #root.target.getUserId() + '_' + #page + '_' + #size)",
             unless = "#result.data == null || #result.data.isEmpty()")
+    @Transactional(readOnly = true)
     public ApiResponse<List<BookResponseDto>> findAllByOwner(int page, int size) {
 
         var userId = getUserId();
         Pageable pageable = PageRequest.of(page, size);
-        var entities = bookRepository.findAllByCreatedByEquals(userId, pageable);
+        var entities = bookRepository.findSummariesByOwner(userId, pageable);
 
         List<BookResponseDto> bookDtos = entities.getContent().stream()
                 .map(bookMapper::toBookResponse)
@@ -121,16 +146,17 @@ public class BookServiceImpl implements BookService{
     }
 
     @Override
-    @Cacheable(value = "user-books-#{#root.target.getUserId()}", key = "'borrowed_' + #root.target.getUserId() + '_' + #page + '_' + #size",
+    @Cacheable(value = "user-books", key = "@cacheGenerations.userKey(#root.target.getUserId(), 'borrowed_' + #root.target.getUserId() + '_' + #page + '_' + #size)",
             unless = "#result.data == null || #result.data.isEmpty()")
+    @Transactional(readOnly = true)
     public ApiResponse<List<BookResponseDto>> findAllBorrowedBooks(int page, int size) {
 
         var userId = getUserId();
         Pageable pageable = PageRequest.of(page, size);
-        var entities = bookHistoryRepository.findAllBorrowedBooks(userId, pageable);
+        var entities = bookHistoryRepository.findBorrowedSummaries(userId, pageable);
 
         List<BookResponseDto> bookDtos = entities.getContent().stream()
-                .map(transaction -> bookMapper.toBookResponse(transaction.getBook()))
+                .map(bookMapper::toBookResponse)
                 .collect(Collectors.toList());
 
         String message = bookDtos.isEmpty() ?
@@ -143,11 +169,123 @@ public class BookServiceImpl implements BookService{
     }
 
     @Override
-    @Caching(evict = {
-            @CacheEvict(value = "books", key = "#bookId"),
-            @CacheEvict(value = "books", allEntries = true),
-            @CacheEvict(value = "user-books-#{#root.target.getUserId()}", allEntries = true)
-    })
+    @Transactional(readOnly = true)
+    public ApiResponse<CursorPageDto<BookResponseDto>> scrollAllBooks(String cursor, int size, CountMode countMode) {
+
+        var limit = Limit.of(clampCursorPageSize(size) + 1);
+        List<BookSummary> rows;
+        if(StringUtils.hasText(cursor)){
+            var position = cursorCodec.decode(cursor);
+            rows = bookRepository.findPageAfter(position.createdAt(), position.id(), limit);
+        } else {
+            rows = bookRepository.findFirstPage(limit);
+        }
+
+        var total = countFor(countMode, bookRepository::count, bookRepository::estimateCount);
+        var dto = toCursorPage(rows, clampCursorPageSize(size), total);
+
+        String message = dto.content().isEmpty() ?
+                "No more books are available in the library." :
+                String.format("Successfully retrieved %d books from the library.", dto.content().size());
+
+        return ApiResponse.success(message, dto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ApiResponse<CursorPageDto<BookResponseDto>> scrollOwnerBooks(String cursor, int size, CountMode countMode) {
+
+        var userId = getUserId();
+        var limit = Limit.of(clampCursorPageSize(size) + 1);
+        List<BookSummary> rows;
+        if(StringUtils.hasText(cursor)){
+            var position = cursorCodec.decode(cursor);
+            rows = bookRepository.findPageByOwnerAfter(userId, position.createdAt(), position.id(), limit);
+        } else {
+            rows = bookRepository.findFirstPageByOwner(userId, limit);
+        }
+
+        LongSupplier exactCount = () -> bookRepository.countByCreatedByEquals(userId);
+        var total = countFor(countMode, exactCount, exactCount);
+        var dto = toCursorPage(rows, clampCursorPageSize(size), total);
+
+        String message = dto.content().isEmpty() ?
+                "No more books were found in your library." :
+                String.format("Successfully retrieved %d of your books.", dto.content().size());
+
+        return ApiResponse.success(message, dto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ApiResponse<CursorPageDto<BookResponseDto>> scrollBorrowedBooks(String cursor, int size, CountMode countMode) {
+
+        var userId = getUserId();
+        var limit = Limit.of(clampCursorPageSize(size) + 1);
+        List<BookSummary> rows;
+        if(StringUtils.hasText(cursor)){
+            var position = cursorCodec.decode(cursor);
+            rows = bookHistoryRepository.findBorrowedPageAfter(userId, position.createdAt(), position.id(), limit);
+        } else {
+            rows = bookHistoryRepository.findFirstBorrowedPage(userId, limit);
+        }
+
+        LongSupplier exactCount = () -> bookHistoryRepository.countByUserId(userId);
+        var total = countFor(countMode, exactCount, exactCount);
+        var dto = toCursorPage(rows, clampCursorPageSize(size), total);
+
+        String message = dto.content().isEmpty() ?
+                "No more borrowed books were found." :
+                String.format("Successfully retrieved %d of your borrowed books.", dto.content().size());
+
+        return ApiResponse.success(message, dto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ApiResponse<CursorPageDto<BookResponseDto>> searchBooks(String query, String cursor, int size) {
+
+        if(!StringUtils.hasText(query))
+            return ApiResponse.error("Please provide a search term.");
+
+        var pageSize = clampCursorPageSize(size);
+        var limit = Limit.of(pageSize + 1);
+        List<BookSearchHit> hits;
+        if(StringUtils.hasText(cursor)){
+            var position = cursorCodec.decodeRank(cursor);
+            hits = bookRepository.searchPageAfter(query, position.rank(), position.id(), limit);
+        } else {
+            hits = bookRepository.searchFirstPage(query, limit);
+        }
+
+        boolean hasNext = hits.size() > pageSize;
+        var pageHits = hasNext ? hits.subList(0, pageSize) : hits;
+
+        var booksById = bookRepository.findSummariesByIdIn(pageHits.stream().map(BookSearchHit::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(BookSummary::id, Function.identity()));
+
+        List<BookResponseDto> content = pageHits.stream()
+                .map(hit -> booksById.get(hit.getId()))
+                .filter(Objects::nonNull)
+                .map(bookMapper::toBookResponse)
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if(hasNext){
+            var last = pageHits.get(pageHits.size() - 1);
+            nextCursor = cursorCodec.encode(last.getRank(), last.getId());
+        }
+
+        String message = content.isEmpty() ?
+                "No books matched your search." :
+                String.format("Found %d books matching your search.", content.size());
+
+        return ApiResponse.success(message, new CursorPageDto<>(content, nextCursor, hasNext, null));
+    }
+
+    @Override
+    @Transactional
     public ApiResponse<BookResponseDto> updateShareableStatus(String bookId) {
         var userId = getUserId();
         var entity = bookRepository.findById(bookId).orElseThrow(
@@ -160,6 +298,8 @@ public class BookServiceImpl implements BookService{
         boolean newShareableStatus = !entity.isShareable();
         entity.setShareable(newShareableStatus);
         var book = bookRepository.save(entity);
+        eventPublisher.publishEvent(BookEvent.of(BookEventType.SHAREABLE_CHANGED, book, null));
+        evictCachedBook(bookId);
         var dto = bookMapper.toBookResponse(book);
 
         String statusMessage = newShareableStatus ? "available for sharing" : "no longer available for sharing";
@@ -167,11 +307,7 @@ public class BookServiceImpl implements BookService{
     }
 
     @Override
-    @Caching(evict = {
-            @CacheEvict(value = "books", key = "#bookId"),
-            @CacheEvict(value = "books", allEntries = true),
-            @CacheEvict(value = "user-books-#{#root.target.getUserId()}", allEntries = true)
-    })
+    @Transactional
     public ApiResponse<BookResponseDto> updateArchivedStatus(String bookId) {
         var userId = getUserId();
         var entity = bookRepository.findById(bookId).orElseThrow(
@@ -184,6 +320,8 @@ public class BookServiceImpl implements BookService{
         boolean newArchivedStatus = !entity.isArchived();
         entity.setArchived(newArchivedStatus);
         var book = bookRepository.save(entity);
+        eventPublisher.publishEvent(BookEvent.of(BookEventType.ARCHIVED_CHANGED, book, null));
+        evictCachedBook(bookId);
         var dto = bookMapper.toBookResponse(book);
 
         String statusMessage = newArchivedStatus ? "archived" : "restored from archive";
@@ -192,7 +330,6 @@ public class BookServiceImpl implements BookService{
 
     @Transactional
     @Override
-    @CacheEvict(value = "user-books-#{#root.target.getUserId()}", allEntries = true)
     public ApiResponse<BookHistoryDto> borrowBook(String bookId) {
 
         var userId = getUserId();
@@ -206,11 +343,12 @@ public class BookServiceImpl implements BookService{
         if(entity.isArchived() || !entity.isShareable())
             throw new AccessDeniedException("This book is currently unavailable for borrowing. It may be archived or not shared by the owner.");
 
-        if(bookHistoryRepository.isAlreadyBorrowedByCurrentUser(userId, bookId))
+        var activeTransaction = entity.getActiveTransaction();
+        if(activeTransaction != null && activeTransaction.getUser().getId().equals(userId))
             throw new AccessDeniedException("You have already borrowed this book. Please return it before borrowing again.");
 
-        if(bookHistoryRepository.isAlreadyBorrowed(bookId))
-            throw new AccessDeniedException("This book is currently borrowed by another user. Please try again later when it becomes available.");
+        if(activeTransaction != null)
+            throw new BookUnavailableException(BOOK_ALREADY_BORROWED);
 
         var user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User", userId));
@@ -221,8 +359,18 @@ public class BookServiceImpl implements BookService{
                 .returnApproved(false)
                 .returned(false)
                 .build();
+        entity.setActiveTransaction(historyBuild);
 
-        var bookTransaction = bookHistoryRepository.save(historyBuild);
+        // the versioned book update and the open-transaction unique index decide concurrent borrowers,
+        // whoever flushes second loses here instead of creating a second loan
+        BookTransaction bookTransaction;
+        try {
+            bookTransaction = bookHistoryRepository.saveAndFlush(historyBuild);
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException ex) {
+            throw new BookUnavailableException(BOOK_ALREADY_BORROWED);
+        }
+        eventPublisher.publishEvent(BookEvent.of(BookEventType.BORROWED, entity, userId));
+        cacheGenerations.bumpUser(userId);
         var dto = bookHistoryMapper.toDto(bookTransaction);
 
         return ApiResponse.success("Book borrowed successfully! You can now access this book in your borrowed collection.", dto);
@@ -234,18 +382,13 @@ public class BookServiceImpl implements BookService{
     public ApiResponse<BookHistoryDto> returnBorrowBook(String bookId) {
 
         var userId = getUserId();
-        var entity = bookRepository.findById(bookId).orElseThrow(
-                () -> new NotFoundException("Book", bookId)
-        );
-
-        if(!bookHistoryRepository.isAlreadyBorrowedByCurrentUser(userId, bookId))
-            throw new AccessDeniedException("You cannot return a book that you haven't borrowed or have already returned.");
-
         var history = bookHistoryRepository.findByBookIdAndUserId(userId, bookId)
-                .orElseThrow(() -> new NotFoundException("Book transaction", bookId));
+                .orElseThrow(() -> new AccessDeniedException("You cannot return a book that you haven't borrowed or have already returned."));
 
         history.setReturned(true);
         var bookHistory = bookHistoryRepository.save(history);
+        eventPublisher.publishEvent(BookEvent.of(BookEventType.RETURNED, history.getBook(), userId));
+        cacheGenerations.bumpUser(userId);
         var dto = bookHistoryMapper.toDto(bookHistory);
 
         return ApiResponse.success("Book return request submitted successfully! The book owner will be notified to approve the return.", dto);
@@ -263,62 +406,72 @@ public class BookServiceImpl implements BookService{
         if(!entity.getOwner().getId().equals(userId))
             throw new AccessDeniedException("You can only approve returns for books that you own.");
 
-        var history = bookHistoryRepository.findByBookIdAndUserId(userId, bookId)
-                .orElseThrow(() -> new NotFoundException("Book transaction", bookId));
-
-        if(!history.isReturned())
-            throw new AccessDeniedException("Cannot approve return for a book that hasn't been marked as returned by the borrower.");
+        var history = bookHistoryRepository.findReturnsAwaitingApproval(bookId, Limit.of(1)).stream()
+                .findFirst()
+                .orElseThrow(() -> new AccessDeniedException("Cannot approve return for a book that hasn't been marked as returned by the borrower."));
 
         history.setReturnApproved(true);
         var bookHistory = bookHistoryRepository.save(history);
         var dto = bookHistoryMapper.toDto(bookHistory);
 
+        // the copy stays out until the owner confirms it is back, then goes straight to the head of the waitlist
+        if(entity.getActiveTransaction() != null && entity.getActiveTransaction().getId().equals(history.getId()))
+            entity.setActiveTransaction(null);
+        var handedOff = entity.getActiveTransaction() == null ? bookWaitlistService.handOff(entity) : Optional.<BookTransaction>empty();
+        eventPublisher.publishEvent(BookEvent.of(BookEventType.RETURN_APPROVED, entity, history.getUser().getId()));
+        cacheGenerations.bumpUser(history.getUser().getId());
+        if(handedOff.isPresent()) {
+            eventPublisher.publishEvent(BookEvent.of(BookEventType.BORROWED, entity, handedOff.get().getUser().getId()));
+            cacheGenerations.bumpUser(handedOff.get().getUser().getId());
+            return ApiResponse.success("Book return has been approved successfully! The book has been handed to the next reader on the waitlist.", dto);
+        }
+
         return ApiResponse.success("Book return has been approved successfully! The book is now available for borrowing again.", dto);
     }
 
-    @Override
-    @Transactional
-    @Async
-    @Caching(evict = {
-            @CacheEvict(value = "books", key = "#bookId"),
-            @CacheEvict(value = "user-books-#{#root.target.getUserId()}", allEntries = true)
-    })
-    public ApiResponse<BookResponseDto> uploadBookCoverPicture(String bookId, MultipartFile coverImage) {
-        try {
-            var userId = getUserId();
-            var entity = bookRepository.findById(bookId).orElseThrow(
-                    () -> new NotFoundException("Book", bookId)
-            );
-
-            if(!entity.getOwner().getId().equals(userId))
-                throw new AccessDeniedException("You can only upload cover images for books that you own.");
-
-            if(coverImage == null || coverImage.isEmpty())
-                return ApiResponse.error("Please select a valid image file to upload as the book cover.");
-
-            var filename = uploadFilesService.saveFile(coverImage);
-            if(!StringUtils.hasText(filename))
-                return ApiResponse.error("Failed to save the uploaded image. Please ensure the file is a valid image format and try again.");
-
-            entity.setBookCover(filename);
-            var book = bookRepository.save(entity);
-            var dto = bookMapper.toBookResponse(book);
-
-            return ApiResponse.success("Book cover image has been uploaded and updated successfully!", dto);
-
-        } catch (NotFoundException ex) {
-            return ApiResponse.error("The book you're trying to update could not be found. It may have been removed.");
-        } catch (AccessDeniedException ex) {
-            return ApiResponse.error(ex.getMessage());
-        } catch (InvalidTokenException ex) {
-            return ApiResponse.error("Your session has expired. Please log in again to upload book covers.");
-        } catch (Exception ex) {
-            log.error("Error occurred while uploading cover for book {}: {}", bookId, ex.getMessage(), ex);
-            return ApiResponse.error("An unexpected error occurred while uploading the book cover. Please try again later.");
+    // the book itself, and the catalog and user pages that list it with its old status
+    private void evictCachedBook(String bookId){
+        cacheGenerations.bumpBook(bookId);
+        cacheGenerations.bumpCatalog();
+    }
+
+    private int clampCursorPageSize(int size){
+        return Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+    }
+
+    /**
+     * Rows are fetched with a limit of {@code size + 1}; the extra row only tells us whether
+     * another page exists and is never returned.
+     */
+    private CursorPageDto<BookResponseDto> toCursorPage(List<BookSummary> rows, int size, Long totalElements){
+        boolean hasNext = rows.size() > size;
+        var pageRows = hasNext ? rows.subList(0, size) : rows;
+
+        List<BookResponseDto> content = pageRows.stream()
+                .map(bookMapper::toBookResponse)
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if(hasNext){
+            var last = pageRows.get(pageRows.size() - 1);
+            nextCursor = cursorCodec.encode(last.cursorCreatedAt(), last.cursorId());
         }
+        return new CursorPageDto<>(content, nextCursor, hasNext, totalElements);
+    }
+
+    private Long countFor(CountMode countMode, LongSupplier exactCount, LongSupplier estimatedCount){
+        return switch (countMode) {
+            case NONE -> null;
+            case EXACT -> exactCount.getAsLong();
+            case ESTIMATE -> {
+                // pg_class.reltuples is -1 until the table has been vacuumed or analyzed at least once
+                long estimate = estimatedCount.getAsLong();
+                yield estimate >= 0 ? estimate : exactCount.getAsLong();
+            }
+        };
     }
 
-    private String getUserId(){
+    public String getUserId(){
         var authentication = SecurityContextHolder.getContext().getAuthentication();
         CustomUserPrincipal principal = (CustomUserPrincipal) authentication.getPrincipal();
         var userId = principal.userId();
@@ -0,0 +1,51 @@
+package com.fares_elsadek.Readly.services.bookevents;
+
+import com.fares_elsadek.Readly.config.properties.BookEventsProperties;
+import com.fares_elsadek.Readly.events.BookEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+
+/**
+ * Fans committed book events out to every node over Redis pub/sub, each node then delivers them
+ * to the streams it holds. If Redis cannot be reached the event is still delivered locally.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookEventRelay implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final BookEventsProperties properties;
+    private final BookEventService bookEventService;
+
+    @TransactionalEventListener
+    public void onBookEvent(BookEvent event) {
+        try {
+            redisTemplate.convertAndSend(properties.channel(), objectMapper.writeValueAsString(event));
+        } catch (DataAccessException | JsonProcessingException ex) {
+            log.warn("Could not publish {} event of book {}, delivering on this node only: {}",
+                    event.type(), event.bookId(), ex.getMessage());
+            bookEventService.dispatch(event);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            bookEventService.dispatch(objectMapper.readValue(message.getBody(), BookEvent.class));
+        } catch (IOException ex) {
+            log.error("Discarding unreadable book event: {}", ex.getMessage());
+        }
+    }
+}
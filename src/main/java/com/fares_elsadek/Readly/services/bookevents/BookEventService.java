@@ -0,0 +1,11 @@
+package com.fares_elsadek.Readly.services.bookevents;
+
+import com.fares_elsadek.Readly.events.BookEvent;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+public interface BookEventService {
+    public SseEmitter subscribe(List<String> watchedBookIds);
+    public void dispatch(BookEvent event);
+}
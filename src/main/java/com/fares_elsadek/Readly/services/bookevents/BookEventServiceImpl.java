@@ -0,0 +1,181 @@
+package com.fares_elsadek.Readly.services.bookevents;
+
+import com.fares_elsadek.Readly.config.properties.BookEventsProperties;
+import com.fares_elsadek.Readly.dtos.BookEventDto;
+import com.fares_elsadek.Readly.events.BookEvent;
+import com.fares_elsadek.Readly.exceptions.InvalidTokenException;
+import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the open event streams of this node. An idle stream is only an entry in two maps and a
+ * parked async request, no thread is held for it, so the number of streams is bounded by
+ * server.tomcat.max-connections rather than by the worker pool. Writes go through a small
+ * dedicated pool so a slow client never stalls the thread that received the event.
+ */
+@Slf4j
+@Service
+public class BookEventServiceImpl implements BookEventService {
+
+    private static final int HEARTBEAT_CHUNK = 500;
+
+    private final BookEventsProperties properties;
+    private final TaskExecutor senderExecutor;
+    private final Map<String, Set<Subscriber>> subscribersByUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> subscribersByBook = new ConcurrentHashMap<>();
+
+    public BookEventServiceImpl(BookEventsProperties properties,
+                                @Qualifier("bookEventExecutor") TaskExecutor senderExecutor) {
+        this.properties = properties;
+        this.senderExecutor = senderExecutor;
+    }
+
+    @Override
+    public SseEmitter subscribe(List<String> watchedBookIds) {
+        var userId = getUserId();
+        var watched = watchedBookIds == null ? Set.<String>of() : watchedBookIds.stream()
+                .filter(StringUtils::hasText)
+                .distinct()
+                .limit(properties.maxWatchedBooks())
+                .collect(Collectors.toUnmodifiableSet());
+
+        // access tokens are only checked when the stream opens, so streams end with the token lifetime
+        var emitter = new SseEmitter(properties.streamTimeout().toMillis());
+        var subscriber = new Subscriber(userId, watched, emitter);
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(error -> unregister(subscriber));
+
+        add(subscribersByUser, userId, subscriber);
+        watched.forEach(bookId -> add(subscribersByBook, bookId, subscriber));
+
+        send(subscriber, SseEmitter.event()
+                .name("CONNECTED")
+                .reconnectTime(properties.heartbeatInterval().toMillis())
+                .data(Map.of("watching", watched), MediaType.APPLICATION_JSON));
+        return emitter;
+    }
+
+    @Override
+    public void dispatch(BookEvent event) {
+        Set<Subscriber> recipients = new HashSet<>();
+        addAll(recipients, subscribersByUser.get(event.ownerId()));
+        if (event.borrowerId() != null)
+            addAll(recipients, subscribersByUser.get(event.borrowerId()));
+        addAll(recipients, subscribersByBook.get(event.bookId()));
+        if (recipients.isEmpty())
+            return;
+
+        var payload = new BookEventDto(event.type(), event.bookId(), event.available(), event.occurredAt());
+        for (var recipient : recipients) {
+            submit(() -> send(recipient, SseEmitter.event()
+                    .name(event.type().name())
+                    .data(payload, MediaType.APPLICATION_JSON)));
+        }
+    }
+
+    // keeps proxies and load balancers from closing idle streams, and finds clients that went away
+    @Scheduled(fixedDelayString = "${app.book-events.heartbeat-interval}", initialDelayString = "${app.book-events.heartbeat-interval}")
+    public void heartbeat() {
+        List<Subscriber> chunk = new ArrayList<>(HEARTBEAT_CHUNK);
+        for (var subscribers : subscribersByUser.values()) {
+            for (var subscriber : subscribers) {
+                chunk.add(subscriber);
+                if (chunk.size() == HEARTBEAT_CHUNK) {
+                    submitHeartbeat(chunk);
+                    chunk = new ArrayList<>(HEARTBEAT_CHUNK);
+                }
+            }
+        }
+        if (!chunk.isEmpty())
+            submitHeartbeat(chunk);
+    }
+
+    private void submitHeartbeat(List<Subscriber> chunk) {
+        submit(() -> chunk.forEach(subscriber -> send(subscriber, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private void submit(Runnable task) {
+        try {
+            senderExecutor.execute(task);
+        } catch (TaskRejectedException ex) {
+            log.warn("Book event sender queue is full, dropping a delivery: {}", ex.getMessage());
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter().send(event);
+        } catch (IOException | IllegalStateException ex) {
+            log.debug("Closing book event stream of user {}: {}", subscriber.userId(), ex.getMessage());
+            unregister(subscriber);
+            subscriber.emitter().completeWithError(ex);
+        }
+    }
+
+    private void unregister(Subscriber subscriber) {
+        remove(subscribersByUser, subscriber.userId(), subscriber);
+        subscriber.watchedBookIds().forEach(bookId -> remove(subscribersByBook, bookId, subscriber));
+    }
+
+    // both add and remove run inside compute so an emptied set is never dropped while being added to
+    private static void add(Map<String, Set<Subscriber>> index, String key, Subscriber subscriber) {
+        index.compute(key, (ignored, subscribers) -> {
+            var target = subscribers == null ? ConcurrentHashMap.<Subscriber>newKeySet() : subscribers;
+            target.add(subscriber);
+            return target;
+        });
+    }
+
+    private static void remove(Map<String, Set<Subscriber>> index, String key, Subscriber subscriber) {
+        index.computeIfPresent(key, (ignored, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private static void addAll(Set<Subscriber> target, Set<Subscriber> source) {
+        if (source != null)
+            target.addAll(source);
+    }
+
+    private String getUserId(){
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserPrincipal principal = (CustomUserPrincipal) authentication.getPrincipal();
+        var userId = principal.userId();
+        if(!StringUtils.hasText(userId))
+            throw new InvalidTokenException("Authentication token is invalid or expired. Please log in again.");
+        return userId;
+    }
+
+    private record Subscriber(String userId, Set<String> watchedBookIds, SseEmitter emitter) {
+        // identity semantics, two streams of the same user watching the same books are still two streams
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.fares_elsadek.Readly.services.bookexport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface BookExportService {
+    public void exportCatalog(OutputStream out, boolean gzip) throws IOException;
+    public void exportTransactions(OutputStream out, boolean gzip) throws IOException;
+}
@@ -0,0 +1,78 @@
+package com.fares_elsadek.Readly.services.bookexport;
+
+import com.fares_elsadek.Readly.repository.BookHistoryRepository;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes exports as newline-delimited JSON straight from a forward-only database cursor.
+ * Rows are read as constructor projections, so nothing is ever attached to the persistence
+ * context and memory stays constant however many rows are exported.
+ */
+@Slf4j
+@Service
+public class BookExportServiceImpl implements BookExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BookRepository bookRepository;
+    private final BookHistoryRepository bookHistoryRepository;
+    private final ObjectWriter rowWriter;
+
+    public BookExportServiceImpl(BookRepository bookRepository,
+                                 BookHistoryRepository bookHistoryRepository,
+                                 ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.bookHistoryRepository = bookHistoryRepository;
+        this.rowWriter = objectMapper.writer()
+                .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCatalog(OutputStream out, boolean gzip) throws IOException {
+        try (var rows = bookRepository.streamAllForExport()) {
+            long written = writeRows(rows, out, gzip);
+            log.info("Catalog export finished, {} books written", written);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportTransactions(OutputStream out, boolean gzip) throws IOException {
+        try (var rows = bookHistoryRepository.streamAllForExport()) {
+            long written = writeRows(rows, out, gzip);
+            log.info("Transaction export finished, {} transactions written", written);
+        }
+    }
+
+    private long writeRows(Stream<?> rows, OutputStream out, boolean gzip) throws IOException {
+        var target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : new BufferedOutputStream(out, BUFFER_SIZE);
+        long written = 0;
+        try (var sequence = rowWriter.writeValues(target)) {
+            var iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                sequence.write(iterator.next());
+                written++;
+            }
+        }
+        if(written > 0)
+            target.write('\n');
+        target.close();
+        return written;
+    }
+}
@@ -0,0 +1,22 @@
+package com.fares_elsadek.Readly.services.bookfile;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookFileUploadDto;
+import com.fares_elsadek.Readly.dtos.BookFileUploadRequestDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface BookFileService {
+    public ApiResponse<BookFileUploadDto> createUpload(String bookId, BookFileUploadRequestDto request);
+    /** Writes one chunk; {@code offset} must be a multiple of the chunk size and the body exactly one chunk long. */
+    public ApiResponse<BookFileUploadDto> writeChunk(String uploadId, long offset, InputStream body) throws IOException;
+    public ApiResponse<BookFileUploadDto> getUpload(String uploadId);
+    public ApiResponse<BookFileUploadDto> completeUpload(String uploadId) throws IOException;
+    /** The e-book of a book for its owner or a reader currently borrowing it. */
+    public BookFileDownload prepareDownload(String bookId);
+    public void deleteAbandonedUploads();
+
+    public record BookFileDownload(Path file, String fileName) {}
+}
@@ -0,0 +1,372 @@
+package com.fares_elsadek.Readly.services.bookfile;
+
+import com.fares_elsadek.Readly.config.properties.BookFileProperties;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookFileUploadDto;
+import com.fares_elsadek.Readly.dtos.BookFileUploadRequestDto;
+import com.fares_elsadek.Readly.exceptions.AccessDeniedException;
+import com.fares_elsadek.Readly.exceptions.InvalidTokenException;
+import com.fares_elsadek.Readly.exceptions.NotFoundException;
+import com.fares_elsadek.Readly.repository.BookHistoryRepository;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resumable e-book uploads.
+ * <p>
+ * Creating an upload preallocates a temp file of the announced size. Each chunk is then written at
+ * its own offset with positional writes, so chunks may arrive in any order, in parallel, on any node
+ * sharing the upload directory, and a chunk that failed is simply sent again. Received chunks are a
+ * Redis bitmap beside the upload's hash; both expire {@code uploadTtl} after the last chunk. Completing
+ * the upload checks the file really is a PDF or EPUB, hashes it and moves it into the private part
+ * of the content-addressed upload store, which only {@link #prepareDownload} hands files out of.
+ */
+@Slf4j
+@Service
+public class BookFileServiceImpl implements BookFileService {
+
+    private static final String UPLOAD_KEY_PREFIX = "book-file-upload:";
+    private static final String CHUNKS_KEY_SUFFIX = ":chunks";
+    private static final String TEMP_SUFFIX = ".ebook";
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final int ZIP_LOCAL_HEADER = 0x04034b50;
+    private static final String EPUB_MIMETYPE = "mimetypeapplication/epub+zip";
+
+    private final BookFileProperties properties;
+    private final BookRepository bookRepository;
+    private final BookHistoryRepository bookHistoryRepository;
+    private final UploadFilesService uploadFilesService;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path tempDir;
+
+    public BookFileServiceImpl(BookFileProperties properties,
+                               BookRepository bookRepository,
+                               BookHistoryRepository bookHistoryRepository,
+                               UploadFilesService uploadFilesService,
+                               StringRedisTemplate redisTemplate,
+                               TransactionTemplate transactionTemplate) throws IOException {
+        this.properties = properties;
+        this.bookRepository = bookRepository;
+        this.bookHistoryRepository = bookHistoryRepository;
+        this.uploadFilesService = uploadFilesService;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tempDir = Path.of(properties.tempDir());
+        Files.createDirectories(tempDir);
+    }
+
+    @Override
+    public ApiResponse<BookFileUploadDto> createUpload(String bookId, BookFileUploadRequestDto request) {
+        var userId = getUserId();
+        var ownerId = bookRepository.findOwnerIdById(bookId).orElseThrow(
+                () -> new NotFoundException("Book", bookId)
+        );
+        if (!ownerId.equals(userId))
+            throw new AccessDeniedException("You can only upload e-books for books that you own.");
+
+        var fileName = request.fileName().toLowerCase(Locale.ROOT);
+        if (!fileName.endsWith(".pdf") && !fileName.endsWith(".epub"))
+            return ApiResponse.error("Only PDF and EPUB e-books can be uploaded.");
+        if (request.size() > properties.maxFileSize().toBytes())
+            return ApiResponse.error("The e-book must not be larger than " + properties.maxFileSize().toMegabytes() + "MB.");
+
+        var uploadId = UUID.randomUUID().toString();
+        var temp = tempFile(uploadId);
+        try (var file = new RandomAccessFile(temp.toFile(), "rw")) {
+            file.setLength(request.size());
+        } catch (IOException ex) {
+            log.error("Could not create e-book upload for book {}: {}", bookId, ex.getMessage(), ex);
+            deleteQuietly(temp);
+            return ApiResponse.error("Failed to start the upload. Please try again.");
+        }
+
+        var upload = new Upload(uploadId, userId, bookId, request.size(), properties.chunkSize().toBytes());
+        var fields = new HashMap<String, String>();
+        fields.put("userId", userId);
+        fields.put("bookId", bookId);
+        fields.put("size", Long.toString(upload.size()));
+        fields.put("chunkSize", Long.toString(upload.chunkSize()));
+        try {
+            redisTemplate.opsForHash().putAll(uploadKey(uploadId), fields);
+            redisTemplate.expire(uploadKey(uploadId), properties.uploadTtl());
+        } catch (RuntimeException ex) {
+            deleteQuietly(temp);
+            throw ex;
+        }
+        return ApiResponse.success("Upload started. Send the e-book in chunks of " + upload.chunkSize() + " bytes.",
+                toDto(upload, missingOffsets(upload), null));
+    }
+
+    @Override
+    public ApiResponse<BookFileUploadDto> writeChunk(String uploadId, long offset, InputStream body) throws IOException {
+        var upload = loadUpload(uploadId);
+        if (offset < 0 || offset >= upload.size() || offset % upload.chunkSize() != 0)
+            return ApiResponse.error("Chunks must start at a multiple of " + upload.chunkSize() + " bytes inside the file.");
+
+        long expected = Math.min(upload.chunkSize(), upload.size() - offset);
+        long written = 0;
+        try (var channel = FileChannel.open(tempFile(uploadId), StandardOpenOption.WRITE)) {
+            var buffer = new byte[COPY_BUFFER_SIZE];
+            while (written < expected) {
+                int read = body.read(buffer, 0, (int) Math.min(buffer.length, expected - written));
+                if (read == -1)
+                    break;
+                var chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining())
+                    written += channel.write(chunk, offset + written);
+            }
+        } catch (NoSuchFileException ex) {
+            throw new NotFoundException("E-book upload", uploadId);
+        }
+        // a short or long body leaves the chunk unmarked, the client sends it again
+        if (written < expected || body.read() != -1)
+            return ApiResponse.error("The chunk at offset " + offset + " must be exactly " + expected + " bytes long.");
+
+        redisTemplate.opsForValue().setBit(chunksKey(uploadId), offset / upload.chunkSize(), true);
+        redisTemplate.expire(chunksKey(uploadId), properties.uploadTtl());
+        redisTemplate.expire(uploadKey(uploadId), properties.uploadTtl());
+        return ApiResponse.success("Chunk received.", toDto(upload, missingOffsets(upload), null));
+    }
+
+    @Override
+    public ApiResponse<BookFileUploadDto> getUpload(String uploadId) {
+        var upload = loadUpload(uploadId);
+        var missing = missingOffsets(upload);
+        var message = missing.isEmpty()
+                ? "Every chunk has been received, the upload can be completed."
+                : missing.size() + " chunks of the e-book are still missing.";
+        return ApiResponse.success(message, toDto(upload, missing, null));
+    }
+
+    @Override
+    public ApiResponse<BookFileUploadDto> completeUpload(String uploadId) throws IOException {
+        var upload = loadUpload(uploadId);
+        var missing = missingOffsets(upload);
+        if (!missing.isEmpty())
+            return ApiResponse.error(missing.size() + " chunks of the e-book are still missing. Send them before completing the upload.");
+        if (!redisTemplate.opsForHash().putIfAbsent(uploadKey(uploadId), "completing", "true"))
+            return ApiResponse.error("This upload is already being completed.");
+
+        var temp = tempFile(uploadId);
+        boolean stored = false;
+        try {
+            var format = detectFormat(temp);
+            if (format == null) {
+                deleteUpload(uploadId);
+                return ApiResponse.error("The uploaded file is not a valid PDF or EPUB e-book.");
+            }
+            var filename = uploadFilesService.storePrivate(temp, sha256(temp), format);
+            stored = true;
+            applyBookFile(upload.bookId(), filename);
+            deleteUpload(uploadId);
+            return ApiResponse.success("Your e-book has been uploaded and attached to the book!",
+                    toDto(upload, List.of(), filename));
+        } catch (IOException | RuntimeException ex) {
+            // once the file has moved into the store the upload cannot be completed again, it is left to the sweeper
+            if (stored)
+                deleteUpload(uploadId);
+            else
+                redisTemplate.opsForHash().delete(uploadKey(uploadId), "completing");
+            throw ex;
+        }
+    }
+
+    @Override
+    public BookFileDownload prepareDownload(String bookId) {
+        var userId = getUserId();
+        var book = bookRepository.findById(bookId).orElseThrow(
+                () -> new NotFoundException("Book", bookId)
+        );
+        if (!book.getOwner().getId().equals(userId) && !bookHistoryRepository.existsActiveBorrow(userId, bookId))
+            throw new AccessDeniedException("You can only read the e-book of a book while you are borrowing it.");
+        if (book.getBookFile() == null)
+            throw new NotFoundException("E-book of book", bookId);
+
+        var extension = StringUtils.getFilenameExtension(book.getBookFile());
+        return new BookFileDownload(uploadFilesService.locate(book.getBookFile()), book.getTitle() + "." + extension);
+    }
+
+    /** Temp files whose upload expired in Redis were abandoned by their client. */
+    @Override
+    @Scheduled(fixedDelayString = "${app.book-files.sweep-interval}", initialDelayString = "${app.book-files.sweep-interval}")
+    public void deleteAbandonedUploads() {
+        var cutoff = Instant.now().minus(properties.uploadTtl());
+        try (var temps = Files.newDirectoryStream(tempDir, "*" + TEMP_SUFFIX)) {
+            for (var temp : temps) {
+                var fileName = temp.getFileName().toString();
+                var uploadId = fileName.substring(0, fileName.length() - TEMP_SUFFIX.length());
+                if (Files.getLastModifiedTime(temp).toInstant().isBefore(cutoff)
+                        && !Boolean.TRUE.equals(redisTemplate.hasKey(uploadKey(uploadId))))
+                    deleteQuietly(temp);
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not delete abandoned e-book uploads, retrying on the next run: {}", ex.getMessage());
+        }
+    }
+
+    private void applyBookFile(String bookId, String filename) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    var book = bookRepository.findById(bookId).orElseThrow(
+                            () -> new NotFoundException("Book", bookId)
+                    );
+                    var previous = book.getBookFile();
+                    if (filename.equals(previous))
+                        return;
+                    uploadFilesService.retain(filename);
+                    if (previous != null)
+                        uploadFilesService.release(previous);
+                    book.setBookFile(filename);
+                });
+                return;
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt == MAX_UPDATE_ATTEMPTS)
+                    throw ex;
+            }
+        }
+    }
+
+    private Upload loadUpload(String uploadId) {
+        var userId = getUserId();
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(uploadKey(uploadId));
+        // another user's upload is reported as missing rather than forbidden, upload ids are not to be probed
+        if (fields.isEmpty() || !userId.equals(fields.get("userId")))
+            throw new NotFoundException("E-book upload", uploadId);
+        return new Upload(uploadId, userId, (String) fields.get("bookId"),
+                Long.parseLong((String) fields.get("size")), Long.parseLong((String) fields.get("chunkSize")));
+    }
+
+    private List<Long> missingOffsets(Upload upload) {
+        byte[] bitmap = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(chunksKey(upload.uploadId()).getBytes(StandardCharsets.UTF_8)));
+        var missing = new ArrayList<Long>();
+        long chunks = (upload.size() + upload.chunkSize() - 1) / upload.chunkSize();
+        for (long chunk = 0; chunk < chunks; chunk++) {
+            // Redis numbers bits from the most significant bit of the first byte
+            int index = (int) (chunk >>> 3);
+            boolean received = bitmap != null && index < bitmap.length && (bitmap[index] & (0x80 >>> (chunk & 7))) != 0;
+            if (!received)
+                missing.add(chunk * upload.chunkSize());
+        }
+        return missing;
+    }
+
+    /** {@code pdf} or {@code epub} from the file's leading bytes, {@code null} for anything else. */
+    private static String detectFormat(Path file) throws IOException {
+        var header = ByteBuffer.allocate(128).order(ByteOrder.LITTLE_ENDIAN);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining())
+                if (channel.read(header) == -1)
+                    break;
+        }
+        header.flip();
+        if (header.remaining() >= PDF_MAGIC.length && header.slice(0, PDF_MAGIC.length).equals(ByteBuffer.wrap(PDF_MAGIC)))
+            return "pdf";
+        // an EPUB is a zip whose first entry is an uncompressed "mimetype" file holding application/epub+zip
+        if (header.remaining() < 30 || header.getInt(0) != ZIP_LOCAL_HEADER)
+            return null;
+        int nameLength = Short.toUnsignedInt(header.getShort(26));
+        int extraLength = Short.toUnsignedInt(header.getShort(28));
+        int dataStart = 30 + nameLength + extraLength;
+        if (nameLength != 8 || dataStart + 20 > header.remaining())
+            return null;
+        var name = StandardCharsets.US_ASCII.decode(header.slice(30, 8)).toString();
+        var content = StandardCharsets.US_ASCII.decode(header.slice(dataStart, 20)).toString();
+        return EPUB_MIMETYPE.equals(name + content) ? "epub" : null;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+        var buffer = ByteBuffer.allocateDirect(16 * COPY_BUFFER_SIZE);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void deleteUpload(String uploadId) {
+        redisTemplate.delete(List.of(uploadKey(uploadId), chunksKey(uploadId)));
+        deleteQuietly(tempFile(uploadId));
+    }
+
+    private Path tempFile(String uploadId) {
+        return tempDir.resolve(uploadId + TEMP_SUFFIX);
+    }
+
+    private static BookFileUploadDto toDto(Upload upload, List<Long> missingOffsets, String bookFile) {
+        return new BookFileUploadDto(upload.uploadId(), upload.bookId(), upload.size(), upload.chunkSize(),
+                missingOffsets, bookFile);
+    }
+
+    private static String uploadKey(String uploadId) {
+        return UPLOAD_KEY_PREFIX + uploadId;
+    }
+
+    private static String chunksKey(String uploadId) {
+        return UPLOAD_KEY_PREFIX + uploadId + CHUNKS_KEY_SUFFIX;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete e-book upload temp file {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private String getUserId() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserPrincipal principal = (CustomUserPrincipal) authentication.getPrincipal();
+        var userId = principal.userId();
+        if (!StringUtils.hasText(userId))
+            throw new InvalidTokenException("Authentication token is invalid or expired. Please log in again.");
+        return userId;
+    }
+
+    private record Upload(String uploadId, String userId, String bookId, long size, long chunkSize) {}
+}
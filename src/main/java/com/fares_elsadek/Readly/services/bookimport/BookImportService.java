@@ -0,0 +1,11 @@
+package com.fares_elsadek.Readly.services.bookimport;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookImportReportDto;
+import com.fares_elsadek.Readly.enums.ImportFormat;
+
+import java.io.InputStream;
+
+public interface BookImportService {
+    public ApiResponse<BookImportReportDto> importBooks(InputStream body, ImportFormat format);
+}
@@ -0,0 +1,229 @@
+package com.fares_elsadek.Readly.services.bookimport;
+
+import com.fares_elsadek.Readly.config.caching.CacheGenerations;
+import com.fares_elsadek.Readly.config.properties.BookImportProperties;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookImportReportDto;
+import com.fares_elsadek.Readly.dtos.BookRequestDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.enums.ImportFormat;
+import com.fares_elsadek.Readly.exceptions.InvalidTokenException;
+import com.fares_elsadek.Readly.mapper.BookMapper;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.utils.CsvLineParser;
+import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("title", "authorName", "isbn");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final BookImportProperties bookImportProperties;
+    private final CacheGenerations cacheGenerations;
+
+    /**
+     * Reads the body one line at a time and writes every {@code batchSize} valid rows in their own
+     * transaction, so heap use is bounded by the batch size and the capped error list rather than by
+     * the size of the upload. A failed batch is rolled back and its rows are saved one at a time, so
+     * only the rows the database rejects are reported; batches that were already committed are kept.
+     */
+    @Override
+    public ApiResponse<BookImportReportDto> importBooks(InputStream body, ImportFormat format) {
+        var userId = getUserId();
+        var report = new ImportReport(bookImportProperties.maxReportedErrors());
+        var batch = new ArrayList<Book>(bookImportProperties.batchSize());
+        var batchLines = new ArrayList<Long>(bookImportProperties.batchSize());
+
+        try (var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvColumns = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if(line.isBlank())
+                    continue;
+
+                if(format == ImportFormat.CSV && csvColumns == null){
+                    csvColumns = readCsvHeader(line);
+                    if(csvColumns == null)
+                        return ApiResponse.error("The CSV header must contain the columns title, authorName and isbn (synopsis is optional).");
+                    continue;
+                }
+
+                report.totalRows++;
+                BookRequestDto request;
+                try{
+                    request = format == ImportFormat.CSV ? readCsvRow(line, csvColumns) : objectMapper.readValue(line, BookRequestDto.class);
+                }catch (JsonProcessingException | IllegalArgumentException ex){
+                    report.fail(lineNumber, "Row could not be parsed.");
+                    continue;
+                }
+
+                var violations = validator.validate(request);
+                if(!violations.isEmpty()){
+                    report.fail(lineNumber, violations.stream()
+                            .map(ConstraintViolation::getMessage)
+                            .sorted()
+                            .collect(Collectors.joining("; ")));
+                    continue;
+                }
+
+                batch.add(bookMapper.toEntity(request));
+                batchLines.add(lineNumber);
+                if(batch.size() >= bookImportProperties.batchSize())
+                    writeBatch(batch, batchLines, userId, report);
+            }
+            writeBatch(batch, batchLines, userId, report);
+        } catch (IOException ex) {
+            log.error("Book import aborted after {} imported rows: {}", report.importedRows, ex.getMessage(), ex);
+            return ApiResponse.error(String.format(
+                    "The upload was interrupted. %d books were imported before the failure.", report.importedRows));
+        }
+
+        var dto = report.toDto();
+        String message = dto.failedRows() == 0 ?
+                String.format("Successfully imported %d books into your library.", dto.importedRows()) :
+                String.format("Imported %d of %d books. %d rows were rejected.", dto.importedRows(), dto.totalRows(), dto.failedRows());
+        return ApiResponse.success(message, dto);
+    }
+
+    private void writeBatch(List<Book> batch, List<Long> batchLines, String userId, ImportReport report){
+        if(batch.isEmpty())
+            return;
+        try{
+            save(batch, userId);
+            report.importedRows += batch.size();
+            cacheGenerations.bumpCatalog();
+        }catch (RuntimeException ex){
+            log.warn("Book import batch of {} rows failed, saving its rows one at a time: {}", batch.size(), ex.getMessage());
+            writeRowByRow(batch, batchLines, userId, report);
+        }finally {
+            entityManager.clear();
+            batch.clear();
+            batchLines.clear();
+        }
+    }
+
+    // only reached when a batch fails, so the rows the database accepts still go in and just the bad ones are rejected
+    private void writeRowByRow(List<Book> batch, List<Long> batchLines, String userId, ImportReport report){
+        long imported = 0;
+        for(int i = 0; i < batch.size(); i++){
+            var book = batch.get(i);
+            // the rolled-back batch already gave it an id, without one it is persisted as new again
+            book.setId(null);
+            try{
+                save(List.of(book), userId);
+                imported++;
+            }catch (RuntimeException ex){
+                log.warn("Book import row {} failed: {}", batchLines.get(i), ex.getMessage());
+                report.fail(batchLines.get(i), "Row could not be saved.");
+            }
+        }
+        report.importedRows += imported;
+        if(imported > 0)
+            cacheGenerations.bumpCatalog();
+    }
+
+    private void save(List<Book> books, String userId){
+        transactionTemplate.executeWithoutResult(status -> {
+            var owner = entityManager.getReference(User.class, userId);
+            books.forEach(book -> {
+                book.setOwner(owner);
+                entityManager.persist(book);
+            });
+            entityManager.flush();
+            // nothing left to dirty-check, so the native update and the commit don't re-walk the batch
+            entityManager.clear();
+            bookRepository.refreshSearchVectors(books.stream().map(Book::getId).toList());
+        });
+    }
+
+    private Map<String, Integer> readCsvHeader(String line){
+        Map<String, Integer> columns = new HashMap<>();
+        var header = CsvLineParser.parse(line);
+        for(int i = 0; i < header.size(); i++)
+            columns.put(header.get(i).trim(), i);
+        return columns.keySet().containsAll(REQUIRED_CSV_COLUMNS) ? columns : null;
+    }
+
+    private BookRequestDto readCsvRow(String line, Map<String, Integer> columns){
+        var fields = CsvLineParser.parse(line);
+        return new BookRequestDto(
+                csvField(fields, columns.get("title")),
+                csvField(fields, columns.get("authorName")),
+                csvField(fields, columns.get("isbn")),
+                csvField(fields, columns.get("synopsis"))
+        );
+    }
+
+    private String csvField(List<String> fields, Integer index){
+        if(index == null || index >= fields.size())
+            return null;
+        var value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private String getUserId(){
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserPrincipal principal = (CustomUserPrincipal) authentication.getPrincipal();
+        var userId = principal.userId();
+        if(!StringUtils.hasText(userId))
+            throw new InvalidTokenException("Authentication token is invalid or expired. Please log in again.");
+        return userId;
+    }
+
+    private static final class ImportReport {
+        private final int maxReportedErrors;
+        private final List<BookImportReportDto.RowError> errors = new ArrayList<>();
+        private long totalRows;
+        private long importedRows;
+        private long failedRows;
+
+        private ImportReport(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        private void fail(long line, String message){
+            failedRows++;
+            if(errors.size() < maxReportedErrors)
+                errors.add(new BookImportReportDto.RowError(line, message));
+        }
+
+        private BookImportReportDto toDto(){
+            return new BookImportReportDto(totalRows, importedRows, failedRows, failedRows > errors.size(), errors);
+        }
+    }
+}
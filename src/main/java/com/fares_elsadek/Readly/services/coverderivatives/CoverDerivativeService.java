@@ -0,0 +1,12 @@
+package com.fares_elsadek.Readly.services.coverderivatives;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface CoverDerivativeService {
+    /** Writes every variant of a stored cover beside it, {@code false} when the file is not a readable image. */
+    public boolean generate(String cover) throws IOException;
+    /** The file extension of the image format of an uploaded file, {@code null} when it is not a readable image. */
+    public String detectFormat(Path file) throws IOException;
+    public void generateMissing();
+}
@@ -0,0 +1,96 @@
+package com.fares_elsadek.Readly.services.coverderivatives;
+
+import com.fares_elsadek.Readly.config.properties.CoverDerivativeProperties;
+import com.fares_elsadek.Readly.enums.CoverVariant;
+import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Thumbnails and placeholders for stored covers. New covers get theirs on the cover upload worker
+ * before the book points at them; legacy covers stored before derivatives existed are backfilled
+ * on start, on the bounded {@code coverDerivativeExecutor}.
+ */
+@Slf4j
+@Service
+public class CoverDerivativeServiceImpl implements CoverDerivativeService {
+
+    private final UploadFilesService uploadFilesService;
+    private final TaskExecutor coverDerivativeExecutor;
+    private final CoverImageScaler scaler;
+
+    public CoverDerivativeServiceImpl(CoverDerivativeProperties properties,
+                                      UploadFilesService uploadFilesService,
+                                      @Qualifier("coverDerivativeExecutor") TaskExecutor coverDerivativeExecutor) {
+        this.uploadFilesService = uploadFilesService;
+        this.coverDerivativeExecutor = coverDerivativeExecutor;
+        this.scaler = new CoverImageScaler(properties.jpegQuality());
+    }
+
+    @Override
+    public boolean generate(String cover) throws IOException {
+        // content-addressed covers uploaded again keep the thumbnails rendered the first time
+        if (hasAllDerivatives(cover))
+            return true;
+        var derivatives = scaler.derive(uploadFilesService.locate(cover), cover);
+        if (derivatives == null)
+            return false;
+
+        for (var derivative : derivatives.entrySet()) {
+            var target = uploadFilesService.locate(derivative.getKey().fileName(cover));
+            var partial = target.resolveSibling(target.getFileName() + ".part");
+            Files.write(partial, derivative.getValue());
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return true;
+    }
+
+    @Override
+    public String detectFormat(Path file) throws IOException {
+        return CoverImageScaler.formatSuffix(file);
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void generateMissing() {
+        int submitted = 0;
+        try (var files = uploadFilesService.listFiles()) {
+            for (var file : files) {
+                var cover = file.getFileName().toString();
+                if (cover.endsWith(".part") || CoverVariant.isDerivative(cover) || hasAllDerivatives(cover))
+                    continue;
+                coverDerivativeExecutor.execute(() -> generateQuietly(cover));
+                submitted++;
+            }
+        } catch (IOException ex) {
+            log.warn("Could not scan stored covers for missing derivatives: {}", ex.getMessage());
+        }
+        if (submitted > 0)
+            log.info("Generating missing derivatives for {} stored covers", submitted);
+    }
+
+    private boolean hasAllDerivatives(String cover) {
+        for (var variant : CoverVariant.values())
+            if (!Files.exists(uploadFilesService.locate(variant.fileName(cover))))
+                return false;
+        return true;
+    }
+
+    private void generateQuietly(String cover) {
+        try {
+            if (!generate(cover))
+                log.debug("Stored file {} is not a readable image, no derivatives generated", cover);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not generate derivatives for cover {}: {}", cover, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.fares_elsadek.Readly.services.coverderivatives;
+
+import com.fares_elsadek.Readly.enums.CoverVariant;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders the {@link CoverVariant}s of a cover with nothing but ImageIO and Java2D.
+ * <p>
+ * Large sources are decoded with subsampling, reading only every n-th pixel while staying at least
+ * twice the size of the largest variant, so a 50MB upload never becomes a full-size raster on the
+ * heap. Each variant is then center-cropped to 2:3 and reduced by repeated bilinear halving, which
+ * avoids the aliasing of a single large bilinear step at a fraction of the cost of area averaging.
+ * The placeholder is blurred so clients can stretch it while the real thumbnail loads.
+ */
+final class CoverImageScaler {
+
+    static {
+        // ImageIO otherwise buffers every stream through a temp file
+        ImageIO.setUseCache(false);
+    }
+
+    private static final CoverVariant[] LARGEST_FIRST = Arrays.stream(CoverVariant.values())
+            .sorted(Comparator.comparingInt(CoverVariant::width).reversed())
+            .toArray(CoverVariant[]::new);
+    private static final ConvolveOp BLUR = new ConvolveOp(new Kernel(3, 3, new float[]{
+            1 / 16f, 2 / 16f, 1 / 16f,
+            2 / 16f, 4 / 16f, 2 / 16f,
+            1 / 16f, 2 / 16f, 1 / 16f}), ConvolveOp.EDGE_NO_OP, null);
+
+    private final float jpegQuality;
+
+    CoverImageScaler(float jpegQuality) {
+        this.jpegQuality = jpegQuality;
+    }
+
+    /** Every variant of the cover, encoded; {@code null} when the source is not a readable image. */
+    Map<CoverVariant, byte[]> derive(Path source, String cover) throws IOException {
+        var image = decode(source);
+        if (image == null)
+            return null;
+
+        var derivatives = new EnumMap<CoverVariant, byte[]>(CoverVariant.class);
+        var previous = image;
+        for (var variant : LARGEST_FIRST) {
+            boolean png = variant.isPng(cover);
+            // every variant is 2:3, so each one is scaled from the previous rather than the original
+            var rendered = render(previous, variant.width(), variant.height(), png);
+            previous = rendered;
+            if (variant == CoverVariant.PLACEHOLDER)
+                rendered = BLUR.filter(rendered, null);
+            derivatives.put(variant, encode(rendered, png));
+        }
+        return derivatives;
+    }
+
+    /** The usual file extension of the image format, {@code null} when ImageIO cannot read the file. */
+    static String formatSuffix(Path source) throws IOException {
+        try (var input = ImageIO.createImageInputStream(source.toFile())) {
+            var readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext())
+                return null;
+            var suffixes = readers.next().getOriginatingProvider().getFileSuffixes();
+            return suffixes.length == 0 ? null : suffixes[0].toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static BufferedImage decode(Path source) throws IOException {
+        try (var input = ImageIO.createImageInputStream(source.toFile())) {
+            var readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext())
+                return null;
+            var reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0) / (2 * LARGEST_FIRST[0].width()),
+                        reader.getHeight(0) / (2 * LARGEST_FIRST[0].height())));
+                var param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage render(BufferedImage source, int width, int height, boolean alpha) {
+        double scale = Math.max((double) width / source.getWidth(), (double) height / source.getHeight());
+        int cropWidth = Math.min(source.getWidth(), (int) Math.round(width / scale));
+        int cropHeight = Math.min(source.getHeight(), (int) Math.round(height / scale));
+        var current = source.getSubimage((source.getWidth() - cropWidth) / 2, (source.getHeight() - cropHeight) / 2,
+                cropWidth, cropHeight);
+
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height)
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, alpha);
+        return draw(current, width, height, alpha);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, boolean alpha) {
+        var target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        var graphics = target.createGraphics();
+        try {
+            if (!alpha) {
+                // transparent areas of a cover rendered to JPEG show as white rather than black
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image, boolean png) throws IOException {
+        var out = new ByteArrayOutputStream(8192);
+        if (png) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+
+        var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (var output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            var param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
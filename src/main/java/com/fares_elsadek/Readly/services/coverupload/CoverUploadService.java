@@ -0,0 +1,10 @@
+package com.fares_elsadek.Readly.services.coverupload;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.CoverUploadJobDto;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface CoverUploadService {
+    public ApiResponse<CoverUploadJobDto> submitCoverUpload(String bookId, MultipartFile cover);
+    public ApiResponse<CoverUploadJobDto> getJob(String jobId);
+}
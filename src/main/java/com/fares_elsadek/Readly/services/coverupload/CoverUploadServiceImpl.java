@@ -0,0 +1,284 @@
+package com.fares_elsadek.Readly.services.coverupload;
+
+import com.fares_elsadek.Readly.config.caching.CacheGenerations;
+import com.fares_elsadek.Readly.config.properties.CoverUploadProperties;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.CoverUploadJobDto;
+import com.fares_elsadek.Readly.enums.CoverUploadStatus;
+import com.fares_elsadek.Readly.exceptions.AccessDeniedException;
+import com.fares_elsadek.Readly.exceptions.InvalidTokenException;
+import com.fares_elsadek.Readly.exceptions.NotFoundException;
+import com.fares_elsadek.Readly.exceptions.ServiceBusyException;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.services.coverderivatives.CoverDerivativeService;
+import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cover uploads as background jobs.
+ * <p>
+ * The request thread only checks ownership and copies the multipart body to a temp file of its own,
+ * hashing it on the way; the multipart part itself is deleted as soon as the request ends. A bounded
+ * worker pool then moves the file into the content-addressed upload store, renders its thumbnails,
+ * points the book at it and evicts the cached book pages. Job state is a Redis hash kept for
+ * {@code jobTtl}, so the status poll can land on any node.
+ */
+@Slf4j
+@Service
+public class CoverUploadServiceImpl implements CoverUploadService {
+
+    private static final String JOB_KEY_PREFIX = "cover-upload-job:";
+    private static final String TEMP_SUFFIX = ".upload";
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+    private static final String NOT_AN_IMAGE = "The uploaded file is not a supported image. Please upload a JPEG, PNG, GIF or BMP image.";
+
+    private final CoverUploadProperties properties;
+    private final BookRepository bookRepository;
+    private final UploadFilesService uploadFilesService;
+    private final CoverDerivativeService coverDerivativeService;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheGenerations cacheGenerations;
+    private final TaskExecutor coverUploadExecutor;
+    private final Path tempDir;
+
+    public CoverUploadServiceImpl(CoverUploadProperties properties,
+                                  BookRepository bookRepository,
+                                  UploadFilesService uploadFilesService,
+                                  CoverDerivativeService coverDerivativeService,
+                                  StringRedisTemplate redisTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  CacheGenerations cacheGenerations,
+                                  @Qualifier("coverUploadExecutor") TaskExecutor coverUploadExecutor) {
+        this.properties = properties;
+        this.bookRepository = bookRepository;
+        this.uploadFilesService = uploadFilesService;
+        this.coverDerivativeService = coverDerivativeService;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheGenerations = cacheGenerations;
+        this.coverUploadExecutor = coverUploadExecutor;
+        this.tempDir = Path.of(properties.tempDir());
+    }
+
+    /** Files left in the temp directory belong to jobs that a previous run never finished. */
+    @PostConstruct
+    void failInterruptedJobs() throws IOException {
+        Files.createDirectories(tempDir);
+        try (var leftovers = Files.newDirectoryStream(tempDir, "*" + TEMP_SUFFIX)) {
+            for (var leftover : leftovers) {
+                var fileName = leftover.getFileName().toString();
+                var jobId = fileName.substring(0, fileName.length() - TEMP_SUFFIX.length());
+                try {
+                    if (Boolean.TRUE.equals(redisTemplate.hasKey(jobKey(jobId))))
+                        updateJob(jobId, CoverUploadStatus.FAILED, null,
+                                "The upload was interrupted by a server restart. Please upload the cover again.");
+                } catch (RuntimeException ex) {
+                    log.warn("Could not mark interrupted cover upload job {} as failed: {}", jobId, ex.getMessage());
+                }
+                deleteQuietly(leftover);
+            }
+        }
+    }
+
+    @Override
+    public ApiResponse<CoverUploadJobDto> submitCoverUpload(String bookId, MultipartFile cover) {
+        var userId = getUserId();
+        var ownerId = bookRepository.findOwnerIdById(bookId).orElseThrow(
+                () -> new NotFoundException("Book", bookId)
+        );
+        if (!ownerId.equals(userId))
+            throw new AccessDeniedException("You can only upload cover images for books that you own.");
+
+        if (cover == null || cover.isEmpty())
+            return ApiResponse.error("Please select a valid image file to upload as the book cover.");
+
+        var jobId = UUID.randomUUID().toString();
+        var temp = tempDir.resolve(jobId + TEMP_SUFFIX);
+        String sha256;
+        try {
+            sha256 = receive(cover, temp);
+        } catch (IOException ex) {
+            log.error("Could not receive cover upload for book {}: {}", bookId, ex.getMessage(), ex);
+            deleteQuietly(temp);
+            return ApiResponse.error("Failed to receive the uploaded image. Please try again.");
+        }
+
+        var job = new CoverUploadJobDto(jobId, bookId, CoverUploadStatus.PENDING, null, null);
+        var fields = new HashMap<String, String>();
+        fields.put("userId", userId);
+        fields.put("bookId", bookId);
+        fields.put("status", CoverUploadStatus.PENDING.name());
+        try {
+            putJob(jobId, fields);
+            coverUploadExecutor.execute(() -> process(jobId, bookId, temp, sha256));
+        } catch (TaskRejectedException ex) {
+            deleteQuietly(temp);
+            redisTemplate.delete(jobKey(jobId));
+            throw new ServiceBusyException("Too many cover uploads are being processed right now. Please try again in a few seconds.");
+        } catch (RuntimeException ex) {
+            deleteQuietly(temp);
+            throw ex;
+        }
+        return ApiResponse.success("Your cover image was received and is being processed.", job);
+    }
+
+    @Override
+    public ApiResponse<CoverUploadJobDto> getJob(String jobId) {
+        var userId = getUserId();
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(jobKey(jobId));
+        // another user's job is reported as missing rather than forbidden, job ids are not to be probed
+        if (fields.isEmpty() || !userId.equals(fields.get("userId")))
+            throw new NotFoundException("Cover upload job", jobId);
+
+        var status = CoverUploadStatus.valueOf((String) fields.get("status"));
+        var job = new CoverUploadJobDto(jobId, (String) fields.get("bookId"), status,
+                (String) fields.get("bookCover"), (String) fields.get("error"));
+        var message = switch (status) {
+            case PENDING -> "Your cover upload is waiting to be processed.";
+            case PROCESSING -> "Your cover upload is being processed.";
+            case COMPLETED -> "Book cover image has been uploaded and updated successfully!";
+            case FAILED -> "Your cover upload could not be completed.";
+        };
+        return ApiResponse.success(message, job);
+    }
+
+    /** Copies the upload to {@code temp} and hashes it on the way, the content is read only once. */
+    private static String receive(MultipartFile cover, Path temp) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+        try (var in = new DigestInputStream(cover.getInputStream(), digest)) {
+            Files.copy(in, temp);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void process(String jobId, String bookId, Path temp, String sha256) {
+        try {
+            updateJob(jobId, CoverUploadStatus.PROCESSING, null, null);
+            // named by detected format, not the client's extension, so the same image always gets the same name
+            var format = coverDerivativeService.detectFormat(temp);
+            if (format == null) {
+                failJob(jobId, NOT_AN_IMAGE);
+                return;
+            }
+            var filename = uploadFilesService.store(temp, sha256, format);
+            // a stored blob that fails here stays unreferenced and is left to the sweeper
+            if (!coverDerivativeService.generate(filename)) {
+                failJob(jobId, NOT_AN_IMAGE);
+                return;
+            }
+            applyCover(bookId, filename);
+            evictCachedBook(bookId);
+            updateJob(jobId, CoverUploadStatus.COMPLETED, filename, null);
+        } catch (NotFoundException ex) {
+            failJob(jobId, "The book was removed before its cover could be updated.");
+        } catch (Exception ex) {
+            log.error("Error occurred while processing cover upload {} for book {}: {}", jobId, bookId, ex.getMessage(), ex);
+            failJob(jobId, "The cover image could not be saved. Please try uploading it again.");
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private void applyCover(String bookId, String filename) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    var book = bookRepository.findById(bookId).orElseThrow(
+                            () -> new NotFoundException("Book", bookId)
+                    );
+                    var previous = book.getBookCover();
+                    if (filename.equals(previous))
+                        return;
+                    uploadFilesService.retain(filename);
+                    if (previous != null)
+                        uploadFilesService.release(previous);
+                    book.setBookCover(filename);
+                });
+                return;
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt == MAX_UPDATE_ATTEMPTS)
+                    throw ex;
+            }
+        }
+    }
+
+    // the book and every page showing its old cover
+    private void evictCachedBook(String bookId) {
+        cacheGenerations.bumpBook(bookId);
+        cacheGenerations.bumpCatalog();
+    }
+
+    private void failJob(String jobId, String error) {
+        try {
+            updateJob(jobId, CoverUploadStatus.FAILED, null, error);
+        } catch (RuntimeException ex) {
+            log.warn("Could not record failure of cover upload job {}: {}", jobId, ex.getMessage());
+        }
+    }
+
+    private void updateJob(String jobId, CoverUploadStatus status, String bookCover, String error) {
+        var fields = new HashMap<String, String>();
+        fields.put("status", status.name());
+        if (bookCover != null)
+            fields.put("bookCover", bookCover);
+        if (error != null)
+            fields.put("error", error);
+        putJob(jobId, fields);
+    }
+
+    private void putJob(String jobId, Map<String, String> fields) {
+        var key = jobKey(jobId);
+        redisTemplate.opsForHash().putAll(key, fields);
+        redisTemplate.expire(key, properties.jobTtl());
+    }
+
+    private static String jobKey(String jobId) {
+        return JOB_KEY_PREFIX + jobId;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete cover upload temp file {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private String getUserId() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserPrincipal principal = (CustomUserPrincipal) authentication.getPrincipal();
+        var userId = principal.userId();
+        if (!StringUtils.hasText(userId))
+            throw new InvalidTokenException("Authentication token is invalid or expired. Please log in again.");
+        return userId;
+    }
+}
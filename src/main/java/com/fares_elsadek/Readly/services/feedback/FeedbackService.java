@@ -0,0 +1,13 @@
+package com.fares_elsadek.Readly.services.feedback;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.CursorPageDto;
+import com.fares_elsadek.Readly.dtos.FeedbackRequestDto;
+import com.fares_elsadek.Readly.dtos.FeedbackResponseDto;
+
+public interface FeedbackService {
+    public ApiResponse<FeedbackResponseDto> saveFeedback(String bookId, FeedbackRequestDto feedbackRequest);
+    public ApiResponse<FeedbackResponseDto> updateFeedback(String feedbackId, FeedbackRequestDto feedbackRequest);
+    public ApiResponse<Void> deleteFeedback(String feedbackId);
+    public ApiResponse<CursorPageDto<FeedbackResponseDto>> scrollBookFeedbacks(String bookId, String cursor, int size);
+}
@@ -0,0 +1,187 @@
+package com.fares_elsadek.Readly.services.feedback;
+
+import com.fares_elsadek.Readly.config.caching.CacheGenerations;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.CursorPageDto;
+import com.fares_elsadek.Readly.dtos.FeedbackRequestDto;
+import com.fares_elsadek.Readly.dtos.FeedbackResponseDto;
+import com.fares_elsadek.Readly.entity.Feedback;
+import com.fares_elsadek.Readly.exceptions.AccessDeniedException;
+import com.fares_elsadek.Readly.exceptions.InvalidTokenException;
+import com.fares_elsadek.Readly.exceptions.NotFoundException;
+import com.fares_elsadek.Readly.mapper.FeedbackMapper;
+import com.fares_elsadek.Readly.repository.BookHistoryRepository;
+import com.fares_elsadek.Readly.repository.BookRatingRepository;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.repository.FeedbackRepository;
+import com.fares_elsadek.Readly.repository.UserRepository;
+import com.fares_elsadek.Readly.repository.projection.ReviewSummary;
+import com.fares_elsadek.Readly.utils.CursorCodec;
+import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FeedbackServiceImpl implements FeedbackService {
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final String ONE_REVIEW_PER_READER = "uk_feedback_book_user";
+
+    private final FeedbackRepository feedbackRepository;
+    private final BookRatingRepository bookRatingRepository;
+    private final BookRepository bookRepository;
+    private final BookHistoryRepository bookHistoryRepository;
+    private final UserRepository userRepository;
+    private final FeedbackMapper feedbackMapper;
+    private final CursorCodec cursorCodec;
+    private final CacheGenerations cacheGenerations;
+
+    @Override
+    @Transactional
+    public ApiResponse<FeedbackResponseDto> saveFeedback(String bookId, FeedbackRequestDto feedbackRequest) {
+
+        var userId = getUserId();
+        var book = bookRepository.findById(bookId).orElseThrow(
+                () -> new NotFoundException("Book", bookId)
+        );
+
+        if(book.getOwner().getId().equals(userId))
+            throw new AccessDeniedException("You cannot review your own book.");
+
+        if(!bookHistoryRepository.existsByBookIdAndUserId(bookId, userId))
+            throw new AccessDeniedException("You can only review books that you have borrowed.");
+
+        if(feedbackRepository.existsByBookIdAndUserId(bookId, userId))
+            throw new AccessDeniedException("You have already reviewed this book. Update your existing review instead.");
+
+        var feedback = Feedback.builder()
+                .note(feedbackRequest.note().doubleValue())
+                .comment(feedbackRequest.comment())
+                .book(book)
+                .user(userRepository.findById(userId).orElseThrow(() -> new NotFoundException("User", userId)))
+                .build();
+        try {
+            feedback = feedbackRepository.saveAndFlush(feedback);
+        } catch (DataIntegrityViolationException ex) {
+            // a concurrent review by the same reader got in first; any other violation is a real error
+            if (!violates(ex, ONE_REVIEW_PER_READER))
+                throw ex;
+            throw new AccessDeniedException("You have already reviewed this book. Update your existing review instead.");
+        }
+        applyRatingChange(bookId, 1, 0, feedbackRequest.note());
+
+        var dto = feedbackMapper.toDto(feedback);
+        return ApiResponse.success("Thank you! Your review has been published.", dto);
+    }
+
+    @Override
+    @Transactional
+    public ApiResponse<FeedbackResponseDto> updateFeedback(String feedbackId, FeedbackRequestDto feedbackRequest) {
+
+        var feedback = findOwnFeedback(feedbackId);
+        int previousNote = stars(feedback.getNote());
+
+        feedback.setNote(feedbackRequest.note().doubleValue());
+        feedback.setComment(feedbackRequest.comment());
+        feedback = feedbackRepository.save(feedback);
+        applyRatingChange(feedback.getBook().getId(), 0, previousNote, feedbackRequest.note());
+
+        var dto = feedbackMapper.toDto(feedback);
+        return ApiResponse.success("Your review has been updated.", dto);
+    }
+
+    @Override
+    @Transactional
+    public ApiResponse<Void> deleteFeedback(String feedbackId) {
+
+        var feedback = findOwnFeedback(feedbackId);
+        feedbackRepository.delete(feedback);
+        applyRatingChange(feedback.getBook().getId(), -1, stars(feedback.getNote()), 0);
+
+        return ApiResponse.success("Your review has been deleted.", null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ApiResponse<CursorPageDto<FeedbackResponseDto>> scrollBookFeedbacks(String bookId, String cursor, int size) {
+
+        int pageSize = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+        var limit = Limit.of(pageSize + 1);
+        List<ReviewSummary> rows;
+        if(StringUtils.hasText(cursor)){
+            var position = cursorCodec.decode(cursor);
+            rows = feedbackRepository.findReviewPageBefore(bookId, position.createdAt(), position.id(), limit);
+        } else {
+            rows = feedbackRepository.findFirstReviewPage(bookId, limit);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        var pageRows = hasNext ? rows.subList(0, pageSize) : rows;
+        var content = pageRows.stream().map(feedbackMapper::toDto).toList();
+        String nextCursor = null;
+        if(hasNext){
+            var last = pageRows.get(pageRows.size() - 1);
+            nextCursor = cursorCodec.encode(last.createdAt(), last.id());
+        }
+        var dto = new CursorPageDto<>(content, nextCursor, hasNext, null);
+
+        String message = content.isEmpty() ?
+                "No more reviews were found for this book." :
+                String.format("Successfully retrieved %d reviews.", content.size());
+        return ApiResponse.success(message, dto);
+    }
+
+    private static boolean violates(DataIntegrityViolationException ex, String constraint) {
+        return ex.getCause() instanceof ConstraintViolationException violation
+                && constraint.equalsIgnoreCase(violation.getConstraintName());
+    }
+
+    private Feedback findOwnFeedback(String feedbackId) {
+        var feedback = feedbackRepository.findById(feedbackId).orElseThrow(
+                () -> new NotFoundException("Feedback", feedbackId)
+        );
+        if(feedback.getUser() == null || !feedback.getUser().getId().equals(getUserId()))
+            throw new AccessDeniedException("You can only change reviews that you wrote.");
+        return feedback;
+    }
+
+    /**
+     * Moves the book's totals by one review: {@code removedNote} leaves its histogram bucket and
+     * {@code addedNote} enters one, 0 standing for "none" on either side.
+     */
+    private void applyRatingChange(String bookId, int countDelta, int removedNote, int addedNote) {
+        long[] buckets = new long[6];
+        buckets[removedNote]--;
+        buckets[addedNote]++;
+        bookRatingRepository.applyDelta(bookId, countDelta, addedNote - removedNote,
+                buckets[1], buckets[2], buckets[3], buckets[4], buckets[5]);
+        // the rating shows on the book and on every page listing it
+        cacheGenerations.bumpBook(bookId);
+        cacheGenerations.bumpCatalog();
+    }
+
+    // reviews written before ratings were validated may hold fractional or out-of-range notes
+    private static int stars(Double note) {
+        return (int) Math.min(5, Math.max(1, Math.round(note)));
+    }
+
+    private String getUserId(){
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserPrincipal principal = (CustomUserPrincipal) authentication.getPrincipal();
+        var userId = principal.userId();
+        if(!StringUtils.hasText(userId))
+            throw new InvalidTokenException("Authentication token is invalid or expired. Please log in again.");
+        return userId;
+    }
+}
@@ -0,0 +1,12 @@
+package com.fares_elsadek.Readly.services.recommendation;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookRecommendationDto;
+
+import java.util.List;
+
+public interface BookRecommendationService {
+    public ApiResponse<List<BookRecommendationDto>> getRecommendations(String bookId, int limit);
+    public void catchUp();
+    public void snapshot();
+}
@@ -0,0 +1,152 @@
+package com.fares_elsadek.Readly.services.recommendation;
+
+import com.fares_elsadek.Readly.config.properties.RecommendationProperties;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookRecommendationDto;
+import com.fares_elsadek.Readly.repository.BookHistoryRepository;
+import com.fares_elsadek.Readly.repository.projection.BorrowRecord;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves co-borrow recommendations from a {@link CoBorrowIndex} held in memory on every node.
+ * <p>
+ * The index follows {@code book_transaction} by keyset on (createdAt, id): a scheduled poll applies
+ * whatever was borrowed since the last row it saw, on any node, so the index stays current without
+ * nightly rebuilds. Rows younger than {@code commitLag} are left for a later poll, a transaction
+ * that commits after a newer one would otherwise fall behind the watermark and be skipped.
+ * <p>
+ * The index and its watermark are snapshotted to disk periodically and on shutdown; a restart loads
+ * the snapshot and only replays the borrows after it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookRecommendationServiceImpl implements BookRecommendationService {
+
+    private final RecommendationProperties properties;
+    private final BookHistoryRepository bookHistoryRepository;
+
+    // not synchronized: catchUp and snapshot hold it across database and file I/O, which would pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile CoBorrowIndex index;
+    private volatile boolean caughtUp;
+    private long snapshotVersion = -1;
+
+    @Override
+    public ApiResponse<List<BookRecommendationDto>> getRecommendations(String bookId, int limit) {
+        if (!caughtUp)
+            return ApiResponse.success("Recommendations are still being prepared. Check back soon!", List.of());
+
+        int size = Math.min(Math.max(limit, 1), properties.maxResults());
+        var content = index.recommend(bookId, size);
+        String message = content.isEmpty() ?
+                "No recommendations were found for this book yet." :
+                String.format("Successfully retrieved %d recommendations.", content.size());
+        return ApiResponse.success(message, content);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.recommendations.poll-interval}")
+    public void catchUp() {
+        lock.lock();
+        try {
+            catchUpLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void catchUpLocked() {
+        if (index == null)
+            index = loadSnapshot();
+
+        try {
+            var before = LocalDateTime.now().minus(properties.commitLag());
+            var limit = Limit.of(properties.batchSize());
+            List<BorrowRecord> batch;
+            do {
+                batch = index.watermarkCreatedAt() == null ?
+                        bookHistoryRepository.findFirstBorrowRecords(before, limit) :
+                        bookHistoryRepository.findBorrowRecordsAfter(index.watermarkCreatedAt(), index.watermarkId(), before, limit);
+                index.apply(batch);
+            } while (batch.size() == properties.batchSize());
+        } catch (DataAccessException ex) {
+            log.warn("Could not catch up co-borrow recommendations, retrying on the next poll: {}", ex.getMessage());
+            return;
+        }
+
+        if (!caughtUp) {
+            log.info("Co-borrow recommendations ready for {} books", index.bookCount());
+            caughtUp = true;
+        }
+    }
+
+    @Override
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${app.recommendations.snapshot-interval}", initialDelayString = "${app.recommendations.snapshot-interval}")
+    public void snapshot() {
+        lock.lock();
+        try {
+            snapshotLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void snapshotLocked() {
+        if (index == null || index.version() == snapshotVersion)
+            return;
+
+        var target = Path.of(properties.snapshotPath());
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            var temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                snapshotVersion = index.writeTo(out);
+            } catch (IOException | RuntimeException ex) {
+                Files.deleteIfExists(temp);
+                throw ex;
+            }
+            // readers of the snapshot path only ever see a complete file
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Could not write co-borrow snapshot to {}: {}", target, ex.getMessage());
+        }
+    }
+
+    private CoBorrowIndex loadSnapshot() {
+        var source = Path.of(properties.snapshotPath());
+        if (Files.isReadable(source)) {
+            try (var in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(source))))) {
+                var loaded = CoBorrowIndex.readFrom(in, properties.maxHistoryPerUser());
+                snapshotVersion = loaded.version();
+                log.info("Loaded co-borrow snapshot with {} books, replaying borrows since {}",
+                        loaded.bookCount(), loaded.watermarkCreatedAt());
+                return loaded;
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Ignoring unreadable co-borrow snapshot {}, rebuilding from all borrows: {}", source, ex.getMessage());
+            }
+        }
+        return new CoBorrowIndex(properties.maxHistoryPerUser());
+    }
+}
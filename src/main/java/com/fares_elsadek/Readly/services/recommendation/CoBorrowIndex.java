@@ -0,0 +1,299 @@
+package com.fares_elsadek.Readly.services.recommendation;
+
+import com.fares_elsadek.Readly.dtos.BookRecommendationDto;
+import com.fares_elsadek.Readly.repository.projection.BorrowRecord;
+import com.fares_elsadek.Readly.utils.IntIntHashMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory "readers who borrowed this also borrowed" counts.
+ * <p>
+ * Book and user ids are interned to dense ints once; after that every structure is primitive:
+ * one sparse {@link IntIntHashMap} row of co-borrow counts per book, an {@code int[]} of distinct
+ * borrowers per book, and a bounded history of distinct books per user. A borrow only touches the
+ * rows of the books already in that reader's history, so the index is maintained one transaction at
+ * a time and never rescanned.
+ * <p>
+ * Candidates are ranked by cosine similarity, {@code co(a, b) / sqrt(borrowers(a) * borrowers(b))},
+ * so a book everyone borrows does not top every list.
+ */
+final class CoBorrowIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x52434249;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final int maxHistoryPerUser;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> bookKeys = new HashMap<>();
+    private final Map<String, Integer> userKeys = new HashMap<>();
+    private String[] bookIds = new String[64];
+    private String[] titles = new String[64];
+    private String[] authorNames = new String[64];
+    private IntIntHashMap[] rows = new IntIntHashMap[64];
+    private int[] borrowers = new int[64];
+    private int[][] histories = new int[64][];
+    private int[] historySizes = new int[64];
+
+    private LocalDateTime watermarkCreatedAt;
+    private String watermarkId;
+    private long version;
+
+    CoBorrowIndex(int maxHistoryPerUser) {
+        this.maxHistoryPerUser = maxHistoryPerUser;
+    }
+
+    /** Applies a batch of borrows, which must come in (createdAt, id) order after the watermark. */
+    void apply(List<BorrowRecord> records) {
+        if (records.isEmpty())
+            return;
+        lock.writeLock().lock();
+        try {
+            for (var record : records) {
+                apply(record);
+                watermarkCreatedAt = record.createdAt();
+                watermarkId = record.transactionId();
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(BorrowRecord record) {
+        int book = internBook(record.bookId());
+        titles[book] = record.title();
+        authorNames[book] = record.authorName();
+        int user = internUser(record.userId());
+
+        int[] history = histories[user];
+        int length = historySizes[user];
+        for (int i = 0; i < length; i++)
+            if (history[i] == book)
+                return;
+
+        borrowers[book]++;
+        for (int i = 0; i < length; i++) {
+            int other = history[i];
+            row(book).addTo(other, 1);
+            row(other).addTo(book, 1);
+        }
+
+        if (history == null) {
+            history = histories[user] = new int[Math.min(8, maxHistoryPerUser)];
+        } else if (length == history.length) {
+            if (length < maxHistoryPerUser) {
+                history = histories[user] = Arrays.copyOf(history, Math.min(length * 2, maxHistoryPerUser));
+            } else {
+                // the oldest borrow stops pairing with new ones, its counts so far are kept
+                System.arraycopy(history, 1, history, 0, length - 1);
+                length--;
+            }
+        }
+        history[length] = book;
+        historySizes[user] = length + 1;
+    }
+
+    List<BookRecommendationDto> recommend(String bookId, int limit) {
+        lock.readLock().lock();
+        try {
+            var key = bookKeys.get(bookId);
+            if (key == null || rows[key] == null)
+                return List.of();
+            int book = key;
+
+            var best = new PriorityQueue<Candidate>(limit + 1);
+            rows[book].forEach((other, count) -> {
+                double score = count / Math.sqrt((double) borrowers[book] * borrowers[other]);
+                var candidate = new Candidate(other, count, score);
+                if (best.size() < limit) {
+                    best.add(candidate);
+                } else if (candidate.compareTo(best.peek()) > 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            });
+
+            var ranked = new ArrayList<BookRecommendationDto>(best.size());
+            while (!best.isEmpty()) {
+                var candidate = best.poll();
+                ranked.add(new BookRecommendationDto(bookIds[candidate.book], titles[candidate.book],
+                        authorNames[candidate.book], candidate.count, candidate.score));
+            }
+            return ranked.reversed();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    LocalDateTime watermarkCreatedAt() {
+        return watermarkCreatedAt;
+    }
+
+    String watermarkId() {
+        return watermarkId;
+    }
+
+    /** Incremented on every applied batch, lets the snapshot task skip writing an unchanged index. */
+    long version() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int bookCount() {
+        lock.readLock().lock();
+        try {
+            return bookKeys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Writes the whole index under the read lock and returns the version that was written. */
+    long writeTo(DataOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeBoolean(watermarkCreatedAt != null);
+            if (watermarkCreatedAt != null) {
+                out.writeUTF(watermarkCreatedAt.toString());
+                out.writeUTF(watermarkId);
+            }
+
+            int books = bookKeys.size();
+            out.writeInt(books);
+            for (int book = 0; book < books; book++) {
+                out.writeUTF(bookIds[book]);
+                writeNullable(out, titles[book]);
+                writeNullable(out, authorNames[book]);
+                out.writeInt(borrowers[book]);
+                if (rows[book] == null)
+                    new IntIntHashMap().writeTo(out);
+                else
+                    rows[book].writeTo(out);
+            }
+
+            var users = new String[userKeys.size()];
+            userKeys.forEach((userId, user) -> users[user] = userId);
+            out.writeInt(users.length);
+            for (int user = 0; user < users.length; user++) {
+                out.writeUTF(users[user]);
+                out.writeInt(historySizes[user]);
+                for (int i = 0; i < historySizes[user]; i++)
+                    out.writeInt(histories[user][i]);
+            }
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static CoBorrowIndex readFrom(DataInput in, int maxHistoryPerUser) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION)
+            throw new IOException("Not a co-borrow snapshot of the current format");
+
+        var index = new CoBorrowIndex(maxHistoryPerUser);
+        if (in.readBoolean()) {
+            index.watermarkCreatedAt = LocalDateTime.parse(in.readUTF());
+            index.watermarkId = in.readUTF();
+        }
+
+        int books = in.readInt();
+        for (int i = 0; i < books; i++) {
+            int book = index.internBook(in.readUTF());
+            index.titles[book] = readNullable(in);
+            index.authorNames[book] = readNullable(in);
+            index.borrowers[book] = in.readInt();
+            var row = IntIntHashMap.readFrom(in);
+            index.rows[book] = row.size() == 0 ? null : row;
+        }
+
+        int users = in.readInt();
+        for (int i = 0; i < users; i++) {
+            int user = index.internUser(in.readUTF());
+            int length = in.readInt();
+            // a snapshot taken with a larger history cap keeps only the most recent books
+            int skipped = Math.max(0, length - maxHistoryPerUser);
+            var history = new int[Math.max(1, length - skipped)];
+            for (int j = 0; j < length; j++) {
+                int book = in.readInt();
+                if (j >= skipped)
+                    history[j - skipped] = book;
+            }
+            index.histories[user] = history;
+            index.historySizes[user] = length - skipped;
+        }
+        return index;
+    }
+
+    private IntIntHashMap row(int book) {
+        var row = rows[book];
+        return row != null ? row : (rows[book] = new IntIntHashMap());
+    }
+
+    private int internBook(String bookId) {
+        var key = bookKeys.get(bookId);
+        if (key != null)
+            return key;
+        int book = bookKeys.size();
+        if (book == bookIds.length) {
+            int capacity = book * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            authorNames = Arrays.copyOf(authorNames, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+            borrowers = Arrays.copyOf(borrowers, capacity);
+        }
+        bookKeys.put(bookId, book);
+        bookIds[book] = bookId;
+        return book;
+    }
+
+    private int internUser(String userId) {
+        var key = userKeys.get(userId);
+        if (key != null)
+            return key;
+        int user = userKeys.size();
+        if (user == histories.length) {
+            histories = Arrays.copyOf(histories, user * 2);
+            historySizes = Arrays.copyOf(historySizes, user * 2);
+        }
+        userKeys.put(userId, user);
+        return user;
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private record Candidate(int book, int count, double score) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(count, other.count);
+        }
+    }
+}
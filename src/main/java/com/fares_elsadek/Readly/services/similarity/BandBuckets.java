@@ -0,0 +1,87 @@
+package com.fares_elsadek.Readly.services.similarity;
+
+import java.util.Arrays;
+
+/**
+ * LSH buckets: open-addressing map from a 64-bit band key to the dense ids of the books whose
+ * signature hashed to it. A bucket keeps at most {@code maxBucketSize} ids as a ring, so a
+ * degenerate band shared by thousands of near-empty books stays bounded and holds the newest ones.
+ */
+final class BandBuckets {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final int maxBucketSize;
+    private long[] keys = new long[1024];
+    private boolean[] used = new boolean[1024];
+    private int[][] postings = new int[1024][];
+    private int[] appended = new int[1024];
+    private int size;
+
+    BandBuckets(int maxBucketSize) {
+        this.maxBucketSize = maxBucketSize;
+    }
+
+    void add(long key, int doc) {
+        int slot = slot(key);
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            postings[slot] = new int[2];
+            if (++size > keys.length * LOAD_FACTOR) {
+                resize();
+                slot = slot(key);
+            }
+        }
+        int[] bucket = postings[slot];
+        int count = appended[slot];
+        if (count < maxBucketSize && count == bucket.length)
+            bucket = postings[slot] = Arrays.copyOf(bucket, Math.min(count * 2, maxBucketSize));
+        bucket[count % maxBucketSize] = doc;
+        appended[slot] = count + 1;
+    }
+
+    /** Visits every id stored under {@code key}. */
+    void forEach(long key, Visitor visitor) {
+        int slot = slot(key);
+        if (!used[slot])
+            return;
+        int[] bucket = postings[slot];
+        int stored = Math.min(appended[slot], maxBucketSize);
+        for (int i = 0; i < stored; i++)
+            visitor.visit(bucket[i]);
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (used[slot] && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        int[][] oldPostings = postings;
+        int[] oldAppended = appended;
+        keys = new long[oldKeys.length << 1];
+        used = new boolean[oldKeys.length << 1];
+        postings = new int[oldKeys.length << 1][];
+        appended = new int[oldKeys.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+                appended[slot] = oldAppended[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Visitor {
+        void visit(int doc);
+    }
+}
@@ -0,0 +1,11 @@
+package com.fares_elsadek.Readly.services.similarity;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.SimilarBookDto;
+
+import java.util.List;
+
+public interface BookSimilarityService {
+    public ApiResponse<List<SimilarBookDto>> getSimilarBooks(String bookId, int limit);
+    public void catchUp();
+}
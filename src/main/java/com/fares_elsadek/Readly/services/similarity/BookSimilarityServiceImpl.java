@@ -0,0 +1,103 @@
+package com.fares_elsadek.Readly.services.similarity;
+
+import com.fares_elsadek.Readly.config.properties.SimilarityProperties;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.SimilarBookDto;
+import com.fares_elsadek.Readly.events.BookCreatedEvent;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.repository.projection.BookText;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves content-based similar books from a {@link SimilarBookIndex} held in memory on every node.
+ * <p>
+ * Books saved through this node are indexed as soon as their transaction commits. A scheduled
+ * poll follows the {@code book} table by keyset on (createdAt, id) to pick up imports and books
+ * saved on other nodes; rows younger than {@code commitLag} wait for a later poll so a slow commit
+ * cannot fall behind the watermark. On start the same poll indexes the whole catalog in batches.
+ */
+@Slf4j
+@Service
+public class BookSimilarityServiceImpl implements BookSimilarityService {
+
+    private final SimilarityProperties properties;
+    private final BookRepository bookRepository;
+    private final SimilarBookIndex index;
+
+    // not synchronized: catchUp holds it across database I/O, which would pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private LocalDateTime watermarkCreatedAt;
+    private String watermarkId;
+    private volatile boolean caughtUp;
+
+    public BookSimilarityServiceImpl(SimilarityProperties properties, BookRepository bookRepository) {
+        this.properties = properties;
+        this.bookRepository = bookRepository;
+        this.index = new SimilarBookIndex(properties.bands(), properties.rowsPerBand(),
+                properties.maxBucketSize(), properties.maxCandidates());
+    }
+
+    @Override
+    public ApiResponse<List<SimilarBookDto>> getSimilarBooks(String bookId, int limit) {
+        if (!caughtUp)
+            return ApiResponse.success("Similar books are still being prepared. Check back soon!", List.of());
+
+        int size = Math.min(Math.max(limit, 1), properties.maxResults());
+        var content = index.similarTo(bookId, size);
+        String message = content.isEmpty() ?
+                "No similar books were found for this book yet." :
+                String.format("Successfully retrieved %d similar books.", content.size());
+        return ApiResponse.success(message, content);
+    }
+
+    @TransactionalEventListener
+    public void onBookCreated(BookCreatedEvent event) {
+        index.add(event.bookId(), event.title(), event.authorName(), event.synopsis());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.similarity.poll-interval}")
+    public void catchUp() {
+        lock.lock();
+        try {
+            catchUpLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void catchUpLocked() {
+        try {
+            var before = LocalDateTime.now().minus(properties.commitLag());
+            var limit = Limit.of(properties.batchSize());
+            List<BookText> batch;
+            do {
+                batch = watermarkCreatedAt == null ?
+                        bookRepository.findFirstBookTexts(before, limit) :
+                        bookRepository.findBookTextsAfter(watermarkCreatedAt, watermarkId, before, limit);
+                for (var book : batch) {
+                    index.add(book.id(), book.title(), book.authorName(), book.synopsis());
+                    watermarkCreatedAt = book.createdAt();
+                    watermarkId = book.id();
+                }
+            } while (batch.size() == properties.batchSize());
+        } catch (DataAccessException ex) {
+            log.warn("Could not catch up the similar books index, retrying on the next poll: {}", ex.getMessage());
+            return;
+        }
+
+        if (!caughtUp) {
+            log.info("Similar books index ready for {} books", index.bookCount());
+            caughtUp = true;
+        }
+    }
+}
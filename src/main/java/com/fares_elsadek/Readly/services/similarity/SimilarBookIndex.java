@@ -0,0 +1,294 @@
+package com.fares_elsadek.Readly.services.similarity;
+
+import com.fares_elsadek.Readly.dtos.SimilarBookDto;
+import com.fares_elsadek.Readly.utils.IntIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * "More like this" over title, author and synopsis, for books with no borrow history yet.
+ * <p>
+ * Each book is a bag of terms: title and author terms count twice, author terms are kept apart
+ * from the same word in a title. A MinHash signature of the term set is cut into {@code bands} of
+ * {@code rowsPerBand} values and every band is hashed into {@link BandBuckets}, so books sharing
+ * enough terms land in at least one common bucket. A query only visits the buckets of its own
+ * bands, keeps the {@code maxCandidates} books that collided in the most bands and ranks those by
+ * TF-IDF cosine similarity. Books store only their term frequencies; the IDF table is kept beside
+ * them, updated for the terms of every added book and fully recomputed each time the catalog grows
+ * by {@code IDF_REFRESH_GROWTH}, so adding books never rewrites existing vectors.
+ */
+final class SimilarBookIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "he", "her", "his",
+            "in", "is", "it", "its", "of", "on", "or", "she", "that", "the", "their", "they", "this",
+            "to", "was", "were", "who", "will", "with");
+    private static final long SEED = 0x5EEDB00CL;
+    private static final double IDF_REFRESH_GROWTH = 0.01;
+
+    private final int bands;
+    private final int rowsPerBand;
+    private final int maxCandidates;
+    private final long[] hashMultipliers;
+    private final long[] hashIncrements;
+    private final BandBuckets buckets;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> termKeys = new HashMap<>();
+    private int[] documentFrequency = new int[1024];
+    private float[] idf = new float[1024];
+    private int idfDocuments;
+
+    private final Map<String, Integer> bookKeys = new HashMap<>();
+    private String[] bookIds = new String[1024];
+    private String[] titles = new String[1024];
+    private String[] authorNames = new String[1024];
+    // per book: term ids ascending and their sublinear term frequency weights, 1 + ln(tf)
+    private int[][] terms = new int[1024][];
+    private float[][] weights = new float[1024][];
+
+    SimilarBookIndex(int bands, int rowsPerBand, int maxBucketSize, int maxCandidates) {
+        this.bands = bands;
+        this.rowsPerBand = rowsPerBand;
+        this.maxCandidates = maxCandidates;
+        this.buckets = new BandBuckets(maxBucketSize);
+
+        var random = new SplittableRandom(SEED);
+        hashMultipliers = new long[bands * rowsPerBand];
+        hashIncrements = new long[bands * rowsPerBand];
+        for (int i = 0; i < hashMultipliers.length; i++) {
+            hashMultipliers[i] = random.nextLong() | 1;
+            hashIncrements[i] = random.nextLong();
+        }
+    }
+
+    /** Indexes a book once, later calls for the same id are ignored since book text does not change. */
+    void add(String bookId, String title, String authorName, String synopsis) {
+        var counts = new HashMap<String, Integer>();
+        tokenize(title, "", 2, counts);
+        tokenize(authorName, "author:", 2, counts);
+        tokenize(synopsis, "", 1, counts);
+
+        lock.writeLock().lock();
+        try {
+            if (bookKeys.containsKey(bookId))
+                return;
+            int book = bookKeys.size();
+            if (book == bookIds.length) {
+                int capacity = book * 2;
+                bookIds = Arrays.copyOf(bookIds, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+                authorNames = Arrays.copyOf(authorNames, capacity);
+                terms = Arrays.copyOf(terms, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            bookKeys.put(bookId, book);
+            bookIds[book] = bookId;
+            titles[book] = title;
+            authorNames[book] = authorName;
+
+            var vector = new long[counts.size()];
+            int i = 0;
+            for (var entry : counts.entrySet()) {
+                int term = internTerm(entry.getKey());
+                documentFrequency[term]++;
+                vector[i++] = (long) term << 32 | entry.getValue();
+            }
+            Arrays.sort(vector);
+            terms[book] = new int[vector.length];
+            weights[book] = new float[vector.length];
+            for (i = 0; i < vector.length; i++) {
+                terms[book][i] = (int) (vector[i] >>> 32);
+                weights[book][i] = (float) (1 + Math.log((int) vector[i]));
+            }
+            refreshIdf(terms[book]);
+
+            if (vector.length > 0) {
+                var bandKeys = bandKeys(terms[book]);
+                for (long key : bandKeys)
+                    buckets.add(key, book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<SimilarBookDto> similarTo(String bookId, int limit) {
+        lock.readLock().lock();
+        try {
+            var key = bookKeys.get(bookId);
+            if (key == null || terms[key].length == 0)
+                return List.of();
+            int book = key;
+
+            var collisions = new IntIntHashMap(maxCandidates);
+            for (long bandKey : bandKeys(terms[book]))
+                buckets.forEach(bandKey, other -> {
+                    if (other != book)
+                        collisions.addTo(other, 1);
+                });
+
+            double norm = norm(book);
+            var best = new PriorityQueue<Candidate>(limit + 1);
+            for (int candidate : mostCollided(collisions)) {
+                double score = dot(book, candidate) / (norm * norm(candidate));
+                if (best.size() < limit) {
+                    best.add(new Candidate(candidate, score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Candidate(candidate, score));
+                }
+            }
+
+            var ranked = new ArrayList<SimilarBookDto>(best.size());
+            while (!best.isEmpty()) {
+                var candidate = best.poll();
+                ranked.add(new SimilarBookDto(bookIds[candidate.book()], titles[candidate.book()],
+                        authorNames[candidate.book()], candidate.score()));
+            }
+            return ranked.reversed();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int bookCount() {
+        lock.readLock().lock();
+        try {
+            return bookKeys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code maxCandidates} books sharing the most bands with the query. Collision counts are
+     * at most {@code bands}, so a histogram finds the cut-off without sorting every candidate.
+     */
+    private int[] mostCollided(IntIntHashMap collisions) {
+        var histogram = new int[bands + 1];
+        collisions.forEach((candidate, count) -> histogram[count]++);
+        int cutoff = bands;
+        int above = 0;
+        while (cutoff > 1 && above + histogram[cutoff] < maxCandidates) {
+            above += histogram[cutoff];
+            cutoff--;
+        }
+
+        var candidates = new int[Math.min(collisions.size(), maxCandidates)];
+        int[] taken = {0, 0};
+        int atCutoff = candidates.length - above;
+        int threshold = cutoff;
+        collisions.forEach((candidate, count) -> {
+            if (count > threshold || (count == threshold && taken[1]++ < atCutoff))
+                candidates[taken[0]++] = candidate;
+        });
+        return candidates;
+    }
+
+    /**
+     * Updates the IDF of the given terms for the current catalog size and recomputes every term
+     * once the catalog has grown enough to shift the others noticeably.
+     */
+    private void refreshIdf(int[] changedTerms) {
+        int documents = bookKeys.size();
+        if (idf.length < documentFrequency.length)
+            idf = Arrays.copyOf(idf, documentFrequency.length);
+        if (documents > idfDocuments * (1 + IDF_REFRESH_GROWTH)) {
+            for (int term = 0; term < termKeys.size(); term++)
+                idf[term] = idf(term, documents);
+            idfDocuments = documents;
+        } else {
+            for (int term : changedTerms)
+                idf[term] = idf(term, documents);
+        }
+    }
+
+    private long[] bandKeys(int[] termIds) {
+        var signature = new long[hashMultipliers.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int term : termIds)
+            for (int i = 0; i < signature.length; i++)
+                signature[i] = Math.min(signature[i], (hashMultipliers[i] * term + hashIncrements[i]) >>> 1);
+
+        var keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = band;
+            for (int row = 0; row < rowsPerBand; row++)
+                key = key * 0x9E3779B97F4A7C15L + signature[band * rowsPerBand + row];
+            keys[band] = key ^ (key >>> 29);
+        }
+        return keys;
+    }
+
+    private double dot(int a, int b) {
+        int[] termsA = terms[a], termsB = terms[b];
+        double dot = 0;
+        for (int i = 0, j = 0; i < termsA.length && j < termsB.length; ) {
+            if (termsA[i] < termsB[j]) {
+                i++;
+            } else if (termsA[i] > termsB[j]) {
+                j++;
+            } else {
+                double termIdf = idf[termsA[i]];
+                dot += weights[a][i] * weights[b][j] * termIdf * termIdf;
+                i++;
+                j++;
+            }
+        }
+        return dot;
+    }
+
+    private double norm(int book) {
+        double sum = 0;
+        for (int i = 0; i < terms[book].length; i++) {
+            double weight = weights[book][i] * idf[terms[book][i]];
+            sum += weight * weight;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private float idf(int term, int documents) {
+        return (float) (Math.log((documents + 1.0) / (documentFrequency[term] + 1.0)) + 1);
+    }
+
+    private int internTerm(String term) {
+        var key = termKeys.get(term);
+        if (key != null)
+            return key;
+        int id = termKeys.size();
+        if (id == documentFrequency.length)
+            documentFrequency = Arrays.copyOf(documentFrequency, id * 2);
+        termKeys.put(term, id);
+        return id;
+    }
+
+    private static void tokenize(String text, String prefix, int weight, Map<String, Integer> counts) {
+        if (text == null)
+            return;
+        for (var token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() < 2 || STOP_WORDS.contains(token))
+                continue;
+            counts.merge(prefix + token, weight, Integer::sum);
+        }
+    }
+
+    private record Candidate(int book, double score) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(score, other.score);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.fares_elsadek.Readly.services.transactionarchive;
+
+import java.time.LocalDateTime;
+
+public interface BookTransactionArchiveService {
+    public int archiveApprovedTransactions();
+    public int archiveApprovedBefore(LocalDateTime approvedBefore);
+}
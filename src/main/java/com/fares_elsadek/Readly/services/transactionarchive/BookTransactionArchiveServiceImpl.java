@@ -0,0 +1,86 @@
+package com.fares_elsadek.Readly.services.transactionarchive;
+
+import com.fares_elsadek.Readly.config.properties.TransactionArchiveProperties;
+import com.fares_elsadek.Readly.repository.BookHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moves approved returns out of the hot {@code book_transaction} table into the month-partitioned
+ * {@code book_transaction_archive}, oldest month first and one batch per transaction so the hot
+ * table is never locked for long. Reads across both tiers go through {@code BookTransactionHistory}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookTransactionArchiveServiceImpl implements BookTransactionArchiveService {
+
+    private final TransactionArchiveProperties properties;
+    private final BookHistoryRepository bookHistoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.transaction-archive.interval}", initialDelayString = "${app.transaction-archive.interval}")
+    public int archiveApprovedTransactions() {
+        try {
+            return archiveApprovedBefore(LocalDateTime.now().minus(properties.minAge()));
+        } catch (DataAccessException ex) {
+            log.warn("Could not archive book transactions, retrying on the next run: {}", ex.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public int archiveApprovedBefore(LocalDateTime approvedBefore) {
+        int archived = 0;
+        for (int batch = 0; batch < properties.maxBatchesPerRun(); batch++) {
+            var oldest = bookHistoryRepository.findOldestArchivableCreatedAt(approvedBefore);
+            if (oldest == null)
+                break;
+
+            var month = YearMonth.from(oldest);
+            createPartition(month);
+            int moved = Objects.requireNonNull(transactionTemplate.execute(status -> bookHistoryRepository.archiveApproved(
+                    approvedBefore, month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(),
+                    properties.batchSize())));
+            archived += moved;
+            // the rest of the month is an active loan or locked by another node's archiver
+            if (moved == 0)
+                break;
+        }
+        if (archived > 0)
+            log.info("Archived {} approved book transactions", archived);
+        return archived;
+    }
+
+    private void createPartition(YearMonth month) {
+        if (knownPartitions.contains(month))
+            return;
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        try {
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS book_transaction_archive_y%04dm%02d PARTITION OF book_transaction_archive FOR VALUES FROM ('%s') TO ('%s')",
+                    month.getYear(), month.getMonthValue(), from, to));
+            knownPartitions.add(month);
+        } catch (DataAccessException ex) {
+            // usually another node creating it at the same time, otherwise the move fails and is retried
+            log.debug("Could not create the archive partition for {}: {}", month, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.fares_elsadek.Readly.services.trending;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookResponseDto;
+
+import java.util.List;
+
+public interface BookTrendingService {
+    public void recordView(String bookId);
+    public void flush();
+    public ApiResponse<List<BookResponseDto>> getTrendingBooks(int limit);
+}
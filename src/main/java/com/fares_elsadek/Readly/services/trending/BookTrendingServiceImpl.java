@@ -0,0 +1,164 @@
+package com.fares_elsadek.Readly.services.trending;
+
+import com.fares_elsadek.Readly.config.properties.TrendingProperties;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookResponseDto;
+import com.fares_elsadek.Readly.enums.BookEventType;
+import com.fares_elsadek.Readly.events.BookEvent;
+import com.fares_elsadek.Readly.mapper.BookMapper;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.repository.projection.BookSummary;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Trending scores with exponential time decay, kept in one Redis sorted set shared by all nodes.
+ * <p>
+ * Rather than decaying every score as time passes, each hit is inflated by
+ * {@code 2^((now - landmark) / halfLife)}: ranking by inflated score is the same as ranking by
+ * decayed score. The landmark moves once per {@code landmarkPeriod} so the inflation factor stays
+ * small; the previous period's set is carried into the new one with ZUNIONSTORE, scaled down by
+ * the decay of one period.
+ * <p>
+ * Requests only touch in-memory striped counters. A scheduled flush drains them and applies the
+ * weighted, inflated increments to Redis in one pipeline.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookTrendingServiceImpl implements BookTrendingService {
+
+    private static final String KEY_PREFIX = "book-trending:";
+
+    // KEYS: marker, this period, previous period; ARGV: decay of one period, ttl in ms
+    private static final RedisScript<Long> CARRY_OVER = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            redis.call('ZUNIONSTORE', KEYS[2], 2, KEYS[2], KEYS[3], 'WEIGHTS', 1, ARGV[1], 'AGGREGATE', 'SUM')
+            redis.call('PEXPIRE', KEYS[2], ARGV[2])
+            redis.call('SET', KEYS[1], '1', 'PX', ARGV[2])
+            return 1
+            """, Long.class);
+
+    private final TrendingProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+
+    private final StripedCounters views = new StripedCounters();
+    private final StripedCounters borrows = new StripedCounters();
+    private final AtomicLong carriedPeriod = new AtomicLong(-1);
+
+    @Override
+    public void recordView(String bookId) {
+        views.increment(bookId);
+    }
+
+    @TransactionalEventListener
+    public void onBookEvent(BookEvent event) {
+        if (event.type() == BookEventType.BORROWED)
+            borrows.increment(event.bookId());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.trending.flush-interval}", initialDelayString = "${app.trending.flush-interval}")
+    public void flush() {
+        Map<String, Long> drainedViews = new HashMap<>();
+        Map<String, Long> drainedBorrows = new HashMap<>();
+        views.drain(drainedViews::put);
+        borrows.drain(drainedBorrows::put);
+        if (drainedViews.isEmpty() && drainedBorrows.isEmpty())
+            return;
+
+        long now = System.currentTimeMillis();
+        long period = periodOf(now);
+        double inflation = Math.pow(2, (now - periodStart(period)) / (double) properties.halfLife().toMillis());
+        Map<String, Double> increments = new HashMap<>();
+        drainedViews.forEach((bookId, count) -> increments.merge(bookId, count * properties.viewWeight() * inflation, Double::sum));
+        drainedBorrows.forEach((bookId, count) -> increments.merge(bookId, count * properties.borrowWeight() * inflation, Double::sum));
+
+        var key = key(period);
+        try {
+            carryOver(period);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                var commands = (StringRedisConnection) connection;
+                increments.forEach((bookId, increment) -> commands.zIncrBy(key, increment, bookId));
+                // the lowest scores are the coldest books, only the tracked maximum is kept
+                commands.zRemRange(key, 0, -(properties.maxTrackedBooks() + 1));
+                commands.pExpire(key, properties.landmarkPeriod().multipliedBy(2).toMillis());
+                return null;
+            });
+        } catch (DataAccessException ex) {
+            log.warn("Could not flush trending counters, keeping them for the next flush: {}", ex.getMessage());
+            drainedViews.forEach(views::add);
+            drainedBorrows.forEach(borrows::add);
+        }
+    }
+
+    // deliberately not @Transactional: that would put recordView behind a proxy interceptor,
+    // the single summaries query runs in the repository's own read-only transaction
+    @Override
+    public ApiResponse<List<BookResponseDto>> getTrendingBooks(int limit) {
+        int size = Math.min(Math.max(limit, 1), properties.maxResults());
+        long period = periodOf(System.currentTimeMillis());
+        carryOver(period);
+
+        var ranked = redisTemplate.opsForZSet().reverseRange(key(period), 0, size - 1);
+        if (ranked == null || ranked.isEmpty())
+            return ApiResponse.success("No trending books yet. Check back soon!", List.of());
+
+        var booksById = bookRepository.findSummariesByIdIn(ranked).stream()
+                .collect(Collectors.toMap(BookSummary::id, Function.identity()));
+        List<BookResponseDto> content = ranked.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .map(bookMapper::toBookResponse)
+                .collect(Collectors.toList());
+
+        return ApiResponse.success(String.format("Successfully retrieved %d trending books.", content.size()), content);
+    }
+
+    /**
+     * Folds the previous period into this one exactly once across all nodes. Any hits already
+     * flushed into the new period are kept, the union adds both sets. The marker is set in the same
+     * script as the union, a union that fails leaves no marker behind and the next call retries it.
+     */
+    private void carryOver(long period) {
+        if (carriedPeriod.get() == period)
+            return;
+        var marker = KEY_PREFIX + "carried:" + period;
+        double decay = Math.pow(2, -properties.landmarkPeriod().toMillis() / (double) properties.halfLife().toMillis());
+        redisTemplate.execute(CARRY_OVER, List.of(marker, key(period), key(period - 1)),
+                String.valueOf(decay), String.valueOf(properties.landmarkPeriod().multipliedBy(2).toMillis()));
+        carriedPeriod.set(period);
+    }
+
+    private long periodOf(long epochMillis) {
+        return epochMillis / properties.landmarkPeriod().toMillis();
+    }
+
+    private long periodStart(long period) {
+        return period * properties.landmarkPeriod().toMillis();
+    }
+
+    private static String key(long period) {
+        return KEY_PREFIX + period;
+    }
+}
@@ -0,0 +1,42 @@
+package com.fares_elsadek.Readly.services.trending;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Per-key hit counters for hot request paths. An increment is a map lookup plus a
+ * {@link LongAdder} add, which spreads contended updates over per-thread cells instead of
+ * retrying one CAS, so it stays in the tens of nanoseconds under load.
+ */
+class StripedCounters {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    void increment(String key) {
+        var counter = counters.get(key);
+        if (counter == null)
+            counter = counters.computeIfAbsent(key, ignored -> new LongAdder());
+        counter.increment();
+    }
+
+    void add(String key, long amount) {
+        counters.computeIfAbsent(key, ignored -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Hands every non-zero count to {@code sink} and resets it. Idle counters are dropped, an
+     * increment racing with the removal lands on the detached adder and is lost, which is fine
+     * for a popularity signal.
+     */
+    void drain(ObjLongConsumer<String> sink) {
+        counters.forEach((key, counter) -> {
+            long count = counter.sumThenReset();
+            if (count > 0)
+                sink.accept(key, count);
+            else
+                counters.remove(key, counter);
+        });
+    }
+}
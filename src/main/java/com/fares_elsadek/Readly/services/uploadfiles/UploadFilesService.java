@@ -1,12 +1,29 @@
 package com.fares_elsadek.Readly.services.uploadfiles;
 
-import org.springframework.web.multipart.MultipartFile;
-
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
 
 public interface UploadFilesService {
 
-    public String saveFile(MultipartFile file) throws IOException;
-    public byte[] loadFile(String filename) throws IOException;
+    /**
+     * Moves a received file into the store under its SHA-256 and returns the stored name. When the
+     * content is stored already the file is dropped and the existing blob is kept.
+     */
+    public String store(Path source, String sha256, String extension) throws IOException;
+    /**
+     * Like {@link #store}, for files only the application may hand out. They are kept outside the
+     * directory {@link #locatePublic} resolves into and their names start with {@code private/}.
+     */
+    public String storePrivate(Path source, String sha256, String extension) throws IOException;
+    /** Counts a book referencing the stored file; call inside the transaction that points the book at it. */
+    public void retain(String filename);
+    public void release(String filename);
+    public int sweepUnreferenced();
+    public Path locate(String filename);
+    /** Resolves only files anyone may download, a private file name is rejected like an unknown one. */
+    public Path locatePublic(String filename);
+    /** Files stored under their upload name before the store became content-addressed. */
+    public DirectoryStream<Path> listFiles() throws IOException;
 
 }
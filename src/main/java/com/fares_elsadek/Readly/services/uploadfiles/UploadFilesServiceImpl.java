@@ -1,41 +1,181 @@
 package com.fares_elsadek.Readly.services.uploadfiles;
 
+import com.fares_elsadek.Readly.config.properties.UploadStoreProperties;
+import com.fares_elsadek.Readly.enums.CoverVariant;
+import com.fares_elsadek.Readly.repository.StoredBlobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.regex.Pattern;
 
+/**
+ * A content-addressed store for uploaded covers.
+ * <p>
+ * A file is named after the SHA-256 of its content and kept two directory levels down, e.g.
+ * {@code 3f/a2/3fa2...9c.png}, so no directory grows past a few thousand entries. Uploading the same
+ * image again, for any book, costs no extra disk: the second copy is dropped and both books point at
+ * the first. {@code stored_blob} counts the books referencing each file and a scheduled sweeper
+ * deletes files that stayed unreferenced for {@code sweepGracePeriod}, together with their
+ * thumbnails. Covers stored under their upload name before this store existed stay in the root
+ * directory and are never counted or swept.
+ * <p>
+ * E-books go through the same store but under a separate root, and their names carry a
+ * {@code private/} prefix, so the public cover endpoint cannot be pointed at one even by a client
+ * that knows the hash of the file.
+ */
+@Slf4j
 @Service
 public class UploadFilesServiceImpl implements UploadFilesService{
 
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("(private/)?[0-9a-f]{64}(\\..+)?");
+    private static final String PRIVATE_PREFIX = "private/";
+
     private final Path root = Paths.get("uploads");
+    private final Path privateRoot = Paths.get("private-uploads");
+    private final UploadStoreProperties properties;
+    private final StoredBlobRepository storedBlobRepository;
+    private final TransactionTemplate transactionTemplate;
 
-    public UploadFilesServiceImpl() throws IOException {
+    public UploadFilesServiceImpl(UploadStoreProperties properties,
+                                  StoredBlobRepository storedBlobRepository,
+                                  TransactionTemplate transactionTemplate) throws IOException {
+        this.properties = properties;
+        this.storedBlobRepository = storedBlobRepository;
+        this.transactionTemplate = transactionTemplate;
         if (!Files.exists(root)) {
             Files.createDirectories(root);
         }
+        Files.createDirectories(privateRoot);
+    }
+
+    @Override
+    public String store(Path source, String sha256, String extension) throws IOException {
+        return store(source, sha256 + "." + extension);
     }
+
     @Override
-    public String saveFile(MultipartFile file) throws IOException {
-        var fileName = file.getOriginalFilename();
-        int dotIndex = fileName.lastIndexOf('.');
-        String name = (dotIndex == -1) ? fileName : fileName.substring(0, dotIndex);
-        String extension = (dotIndex == -1) ? "" : fileName.substring(dotIndex);
+    public String storePrivate(Path source, String sha256, String extension) throws IOException {
+        return store(source, PRIVATE_PREFIX + sha256 + "." + extension);
+    }
 
-        var filename = name + "-" + UUID.randomUUID() + extension;
-        Path filePath = root.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    private String store(Path source, String filename) throws IOException {
+        if (!isContentAddressed(filename))
+            throw new IllegalArgumentException("Not a SHA-256 file name: " + filename);
+        var filePath = locate(filename);
+
+        // renews the grace period first, and waits for a sweep that is deleting this very blob to commit
+        storedBlobRepository.touch(filename);
+        // two workers storing the same content at once both move, the second rename replaces identical bytes
+        if (Files.exists(filePath)) {
+            Files.delete(source);
+            return filename;
+        }
+        Files.createDirectories(filePath.getParent());
+        try {
+            Files.move(source, filePath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            // the temp directory is on another file system, copy to a temp name so readers never see a partial file
+            var partial = filePath.resolveSibling(source.getFileName() + ".part");
+            Files.copy(source, partial, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(partial, filePath, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(source);
+        }
         return filename;
     }
 
     @Override
-    public byte[] loadFile(String filename) throws IOException {
-        Path filePath = root.resolve(filename);
-        return Files.readAllBytes(filePath);
+    public void retain(String filename) {
+        if (isContentAddressed(filename) && storedBlobRepository.addReferences(filename, 1) == 0)
+            throw new IllegalStateException("Stored file " + filename + " was swept before it was referenced");
+    }
+
+    @Override
+    public void release(String filename) {
+        if (isContentAddressed(filename))
+            storedBlobRepository.addReferences(filename, -1);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.upload-store.sweep-interval}", initialDelayString = "${app.upload-store.sweep-interval}")
+    public int sweepUnreferenced() {
+        int swept = 0;
+        try {
+            var before = LocalDateTime.now().minus(properties.sweepGracePeriod());
+            int batch;
+            do {
+                // the files go while the rows are locked, so a concurrent upload of the same content waits for the sweep
+                batch = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                    var keys = storedBlobRepository.lockUnreferenced(before, properties.sweepBatchSize());
+                    for (var key : keys)
+                        deleteBlob(key);
+                    storedBlobRepository.deleteAllByIdInBatch(keys);
+                    return keys.size();
+                }));
+                swept += batch;
+            } while (batch == properties.sweepBatchSize());
+        } catch (DataAccessException | UncheckedIOException ex) {
+            log.warn("Could not sweep unreferenced uploads, retrying on the next run: {}", ex.getMessage());
+        }
+        if (swept > 0)
+            log.info("Deleted {} unreferenced uploaded files", swept);
+        return swept;
+    }
+
+    @Override
+    public Path locate(String filename) {
+        if (filename.startsWith(PRIVATE_PREFIX))
+            return resolve(privateRoot, filename.substring(PRIVATE_PREFIX.length()));
+        return resolve(root, filename);
+    }
+
+    @Override
+    public Path locatePublic(String filename) {
+        if (filename.startsWith(PRIVATE_PREFIX))
+            throw new IllegalArgumentException("Not a public file name: " + filename);
+        return resolve(root, filename);
+    }
+
+    private static Path resolve(Path base, String filename) {
+        Path filePath;
+        if (isContentAddressed(filename))
+            filePath = base.resolve(filename.substring(0, 2)).resolve(filename.substring(2, 4)).resolve(filename);
+        else
+            filePath = base.resolve(filename);
+        filePath = filePath.normalize();
+        if (!filePath.startsWith(base) || !filePath.getFileName().toString().equals(filename))
+            throw new IllegalArgumentException("Not a stored file name: " + filename);
+        return filePath;
+    }
+
+    @Override
+    public DirectoryStream<Path> listFiles() throws IOException {
+        return Files.newDirectoryStream(root, Files::isRegularFile);
+    }
+
+    private void deleteBlob(String filename) {
+        try {
+            Files.deleteIfExists(locate(filename));
+            for (var variant : CoverVariant.values())
+                Files.deleteIfExists(locate(variant.fileName(filename)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean isContentAddressed(String filename) {
+        return CONTENT_ADDRESSED.matcher(filename).matches();
     }
 }
@@ -0,0 +1,15 @@
+package com.fares_elsadek.Readly.services.waitlist;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.WaitlistPositionDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.BookTransaction;
+
+import java.util.Optional;
+
+public interface BookWaitlistService {
+    public ApiResponse<WaitlistPositionDto> joinWaitlist(String bookId);
+    public ApiResponse<Void> leaveWaitlist(String bookId);
+    public ApiResponse<WaitlistPositionDto> getWaitlistPosition(String bookId);
+    public Optional<BookTransaction> handOff(Book book);
+}
@@ -0,0 +1,160 @@
+package com.fares_elsadek.Readly.services.waitlist;
+
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.WaitlistPositionDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.BookTransaction;
+import com.fares_elsadek.Readly.entity.BookWaitlistEntry;
+import com.fares_elsadek.Readly.events.WaitlistJoinedEvent;
+import com.fares_elsadek.Readly.events.WaitlistLeftEvent;
+import com.fares_elsadek.Readly.exceptions.AccessDeniedException;
+import com.fares_elsadek.Readly.exceptions.InvalidTokenException;
+import com.fares_elsadek.Readly.exceptions.NotFoundException;
+import com.fares_elsadek.Readly.repository.BookHistoryRepository;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.repository.BookWaitlistRepository;
+import com.fares_elsadek.Readly.repository.UserRepository;
+import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookWaitlistServiceImpl implements BookWaitlistService {
+
+    private final BookWaitlistRepository bookWaitlistRepository;
+    private final BookRepository bookRepository;
+    private final BookHistoryRepository bookHistoryRepository;
+    private final UserRepository userRepository;
+    private final WaitlistRankIndex waitlistRankIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public ApiResponse<WaitlistPositionDto> joinWaitlist(String bookId) {
+
+        var userId = getUserId();
+        var existing = bookWaitlistRepository.findTicket(bookId, userId);
+        if(existing.isPresent())
+            return ApiResponse.success("You are already on the waitlist for this book.", positionOf(bookId, existing.get()));
+
+        var book = bookRepository.findById(bookId).orElseThrow(
+                () -> new NotFoundException("Book", bookId)
+        );
+
+        if(book.getOwner().getId().equals(userId))
+            throw new AccessDeniedException("You cannot join the waitlist for your own book.");
+
+        if(book.isArchived() || !book.isShareable())
+            throw new AccessDeniedException("This book is currently unavailable for borrowing. It may be archived or not shared by the owner.");
+
+        var activeTransaction = book.getActiveTransaction();
+        if(activeTransaction == null)
+            throw new AccessDeniedException("This book is available right now. Borrow it directly instead of joining the waitlist.");
+
+        if(activeTransaction.getUser().getId().equals(userId))
+            throw new AccessDeniedException("You are currently borrowing this book.");
+
+        var entry = BookWaitlistEntry.builder()
+                .book(book)
+                .user(userRepository.getReferenceById(userId))
+                .build();
+        try {
+            entry = bookWaitlistRepository.saveAndFlush(entry);
+        } catch (DataIntegrityViolationException ex) {
+            throw new AccessDeniedException("You are already on the waitlist for this book.");
+        }
+        eventPublisher.publishEvent(new WaitlistJoinedEvent(bookId, userId, entry.getId()));
+
+        var dto = positionOf(bookId, entry.getId());
+        return ApiResponse.success(String.format("You joined the waitlist at position %d.", dto.position()), dto);
+    }
+
+    @Override
+    @Transactional
+    public ApiResponse<Void> leaveWaitlist(String bookId) {
+
+        var userId = getUserId();
+        if(bookWaitlistRepository.deleteEntry(bookId, userId) == 0)
+            throw new NotFoundException("Waitlist entry for book", bookId);
+
+        eventPublisher.publishEvent(new WaitlistLeftEvent(bookId, userId));
+        return ApiResponse.success("You have left the waitlist for this book.", null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ApiResponse<WaitlistPositionDto> getWaitlistPosition(String bookId) {
+
+        var userId = getUserId();
+        var ticket = bookWaitlistRepository.findTicket(bookId, userId).orElseThrow(
+                () -> new NotFoundException("Waitlist entry for book", bookId)
+        );
+
+        var dto = positionOf(bookId, ticket);
+        return ApiResponse.success(String.format("You are at position %d of %d on the waitlist.", dto.position(), dto.waiting()), dto);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<BookTransaction> handOff(Book book) {
+
+        if(book.isArchived() || !book.isShareable())
+            return Optional.empty();
+
+        var head = bookWaitlistRepository.findHead(book.getId(), Limit.of(1)).stream().findFirst();
+        if(head.isEmpty())
+            return Optional.empty();
+
+        var entry = head.get();
+        bookWaitlistRepository.delete(entry);
+        eventPublisher.publishEvent(new WaitlistLeftEvent(book.getId(), entry.getUser().getId()));
+
+        var transaction = BookTransaction.builder()
+                .book(book)
+                .user(entry.getUser())
+                .returnApproved(false)
+                .returned(false)
+                .build();
+        book.setActiveTransaction(transaction);
+        return Optional.of(bookHistoryRepository.save(transaction));
+    }
+
+    private WaitlistPositionDto positionOf(String bookId, long ticket) {
+        long ahead;
+        long waiting;
+        try {
+            if(!waitlistRankIndex.isLoaded(bookId))
+                waitlistRankIndex.rebuild(bookId, () -> bookWaitlistRepository.findTickets(bookId));
+            ahead = waitlistRankIndex.countAhead(bookId, ticket);
+            waiting = waitlistRankIndex.size(bookId);
+        } catch (DataAccessException ex) {
+            log.warn("Waitlist index unavailable for book {}, counting in the database: {}", bookId, ex.getMessage());
+            ahead = bookWaitlistRepository.countAhead(bookId, ticket);
+            waiting = bookWaitlistRepository.countByBookId(bookId);
+        }
+        // a ticket issued in the current transaction is only indexed after commit
+        return new WaitlistPositionDto(bookId, ahead + 1, Math.max(waiting, ahead + 1));
+    }
+
+    private String getUserId(){
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserPrincipal principal = (CustomUserPrincipal) authentication.getPrincipal();
+        var userId = principal.userId();
+        if(!StringUtils.hasText(userId))
+            throw new InvalidTokenException("Authentication token is invalid or expired. Please log in again.");
+        return userId;
+    }
+}
@@ -0,0 +1,152 @@
+package com.fares_elsadek.Readly.services.waitlist;
+
+import com.fares_elsadek.Readly.events.WaitlistJoinedEvent;
+import com.fares_elsadek.Readly.events.WaitlistLeftEvent;
+import com.fares_elsadek.Readly.repository.projection.WaitlistTicket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Redis sorted-set mirror of the waitlist table, one set per book scored by ticket. It answers
+ * "how many are ahead of ticket t" with ZCOUNT in O(log n) where the table would have to count
+ * the rows. The table stays the source of truth: the set is only written after the
+ * database commit and is rebuilt from the table whenever it is missing.
+ * <p>
+ * Every join and leave bumps a per-book version next to the set. A rebuild reads the version before
+ * it reads the table and only renames its copy into place if the version is unchanged, so a change
+ * committed while it ran cannot be undone by it. Joins and leaves only touch a set that exists, a
+ * missing one is left for the next rebuild rather than started with a single member. Any write that
+ * fails drops the set, and the set expires anyway after {@code TTL} without changes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WaitlistRankIndex {
+
+    private static final String KEY_PREFIX = "book-waitlist:";
+    private static final Duration TTL = Duration.ofHours(1);
+
+    // KEYS: set, version; ARGV: ZADD or ZREM, ttl in ms, then the command's arguments
+    private static final RedisScript<Long> CHANGE = RedisScript.of("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[2])
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            redis.call(ARGV[1], KEYS[1], unpack(ARGV, 3))
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // KEYS: set, version, rebuilt copy; ARGV: version read before the table, ttl in ms
+    private static final RedisScript<Long> REPLACE = RedisScript.of("""
+            if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then
+                redis.call('DEL', KEYS[3])
+                return 0
+            end
+            redis.call('RENAME', KEYS[3], KEYS[1])
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @TransactionalEventListener
+    public void onJoined(WaitlistJoinedEvent event) {
+        try {
+            change(event.bookId(), "ZADD", String.valueOf(event.ticket()), event.userId());
+        } catch (DataAccessException ex) {
+            // a missing member would let the ones behind it jump ahead, drop the whole set so it is rebuilt
+            log.warn("Could not index waitlist ticket {} of book {}: {}", event.ticket(), event.bookId(), ex.getMessage());
+            evict(event.bookId());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onLeft(WaitlistLeftEvent event) {
+        try {
+            change(event.bookId(), "ZREM", event.userId());
+        } catch (DataAccessException ex) {
+            // a stale member would count as someone ahead, drop the whole set so it is rebuilt
+            log.warn("Could not unindex waitlist entry of book {}: {}", event.bookId(), ex.getMessage());
+            evict(event.bookId());
+        }
+    }
+
+    public boolean isLoaded(String bookId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(key(bookId)));
+    }
+
+    /**
+     * Rebuilds the set from {@code tickets}, which must read the table after this method is called.
+     * Gives up without an error if the waitlist changed meanwhile, the next read tries again.
+     */
+    public void rebuild(String bookId, Supplier<List<WaitlistTicket>> tickets) {
+        var version = redisTemplate.opsForValue().get(versionKey(bookId));
+        var current = tickets.get();
+        if (current.isEmpty())
+            return;
+        Set<ZSetOperations.TypedTuple<String>> members = new HashSet<>(current.size());
+        current.forEach(ticket -> members.add(new DefaultTypedTuple<>(ticket.userId(), (double) ticket.ticket())));
+
+        var copy = key(bookId) + ":rebuild:" + UUID.randomUUID();
+        zSet().add(copy, members);
+        redisTemplate.expire(copy, TTL);
+        redisTemplate.execute(REPLACE, List.of(key(bookId), versionKey(bookId), copy),
+                version == null ? "" : version, String.valueOf(TTL.toMillis()));
+    }
+
+    public long countAhead(String bookId, long ticket) {
+        var ahead = zSet().count(key(bookId), Double.NEGATIVE_INFINITY, ticket - 1);
+        return ahead == null ? 0 : ahead;
+    }
+
+    public long size(String bookId) {
+        var size = zSet().zCard(key(bookId));
+        return size == null ? 0 : size;
+    }
+
+    private void change(String bookId, String command, String... arguments) {
+        var args = new String[arguments.length + 2];
+        args[0] = command;
+        args[1] = String.valueOf(TTL.toMillis());
+        System.arraycopy(arguments, 0, args, 2, arguments.length);
+        redisTemplate.execute(CHANGE, List.of(key(bookId), versionKey(bookId)), (Object[]) args);
+    }
+
+    private void evict(String bookId) {
+        try {
+            // the version first, a rebuild already reading the table must not put the set back
+            redisTemplate.opsForValue().increment(versionKey(bookId));
+            redisTemplate.delete(key(bookId));
+        } catch (DataAccessException ex) {
+            log.warn("Could not evict waitlist index of book {}, it expires in {}: {}", bookId, TTL, ex.getMessage());
+        }
+    }
+
+    private ZSetOperations<String, String> zSet() {
+        return redisTemplate.opsForZSet();
+    }
+
+    private static String key(String bookId) {
+        return KEY_PREFIX + bookId;
+    }
+
+    private static String versionKey(String bookId) {
+        return KEY_PREFIX + bookId + ":version";
+    }
+}
@@ -0,0 +1,47 @@
+package com.fares_elsadek.Readly.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 field splitter for a single physical line. Quoted fields may contain
+ * commas and doubled quotes but not line breaks.
+ */
+public final class CsvLineParser {
+
+    private CsvLineParser() {}
+
+    public static List<String> parse(String line){
+        List<String> fields = new ArrayList<>();
+        var current = new StringBuilder();
+        boolean quoted = false;
+
+        for(int i = 0; i < line.length(); i++){
+            char c = line.charAt(i);
+            if(quoted){
+                if(c == '"'){
+                    if(i + 1 < line.length() && line.charAt(i + 1) == '"'){
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if(c == '"' && current.isEmpty()){
+                quoted = true;
+            } else if(c == ','){
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+
+        if(quoted)
+            throw new IllegalArgumentException("Unterminated quoted field");
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,68 @@
+package com.fares_elsadek.Readly.utils;
+
+import com.fares_elsadek.Readly.exceptions.InvalidCursorException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Encodes the keyset position of the last row of a page, either (createdAt, id) or
+ * (rank, id) for search results, into an opaque url-safe token and back.
+ * Clients must treat the token as a black box.
+ */
+@Component
+public class CursorCodec {
+    private static final char SEPARATOR = '|';
+
+    public record Cursor(LocalDateTime createdAt, String id) {}
+
+    public record RankCursor(float rank, String id) {}
+
+    public String encode(LocalDateTime createdAt, String id){
+        return encodeRaw(createdAt.toString(), id);
+    }
+
+    public String encode(float rank, String id){
+        return encodeRaw(Float.toString(rank), id);
+    }
+
+    public Cursor decode(String cursor){
+        var parts = decodeRaw(cursor);
+        try{
+            return new Cursor(LocalDateTime.parse(parts[0]), parts[1]);
+        }catch (DateTimeParseException ex){
+            throw new InvalidCursorException("The supplied cursor is malformed.");
+        }
+    }
+
+    public RankCursor decodeRank(String cursor){
+        var parts = decodeRaw(cursor);
+        try{
+            return new RankCursor(Float.parseFloat(parts[0]), parts[1]);
+        }catch (NumberFormatException ex){
+            throw new InvalidCursorException("The supplied cursor is malformed.");
+        }
+    }
+
+    private String encodeRaw(String key, String id){
+        var raw = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeRaw(String cursor){
+        String raw;
+        try{
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        }catch (IllegalArgumentException ex){
+            throw new InvalidCursorException("The supplied cursor is malformed.");
+        }
+        int separatorIndex = raw.indexOf(SEPARATOR);
+        if(separatorIndex <= 0 || !StringUtils.hasText(raw.substring(separatorIndex + 1)))
+            throw new InvalidCursorException("The supplied cursor is malformed.");
+        return new String[]{raw.substring(0, separatorIndex), raw.substring(separatorIndex + 1)};
+    }
+}
@@ -0,0 +1,115 @@
+package com.fares_elsadek.Readly.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Open-addressing int to int map with linear probing for the in-memory indexes, which key
+ * everything by dense non-negative ids. An entry costs two ints instead of the two boxed objects
+ * plus node of a {@code HashMap<Integer, Integer>}.
+ */
+public final class IntIntHashMap {
+
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntHashMap() {
+        this(4);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        java.util.Arrays.fill(keys, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(int key) {
+        return keys[slot(key)] == key;
+    }
+
+    public int get(int key) {
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    /** Adds {@code delta} to the value of {@code key}, inserting it with 0 first if absent. */
+    public int addTo(int key, int delta) {
+        int slot = slot(key);
+        if (keys[slot] == key)
+            return values[slot] += delta;
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > keys.length * LOAD_FACTOR)
+            resize();
+        return delta;
+    }
+
+    public void forEach(Entry consumer) {
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != EMPTY)
+                consumer.accept(keys[i], values[i]);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                out.writeInt(keys[i]);
+                out.writeInt(values[i]);
+            }
+        }
+    }
+
+    public static IntIntHashMap readFrom(DataInput in) throws IOException {
+        int entries = in.readInt();
+        var map = new IntIntHashMap(entries);
+        for (int i = 0; i < entries; i++)
+            map.addTo(in.readInt(), in.readInt());
+        return map;
+    }
+
+    /** Slot holding {@code key}, or the empty slot where it would be inserted. */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length << 1];
+        values = new int[oldValues.length << 1];
+        java.util.Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // dense ids are sequential, spread them so neighbouring ids do not cluster in one probe run
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    public interface Entry {
+        void accept(int key, int value);
+    }
+}
@@ -0,0 +1,91 @@
+-- Schema of the last release that let Hibernate manage it with ddl-auto=update, with the names
+-- Hibernate gave its constraints. Databases created by that release are baselined at this version
+-- (spring.flyway.baseline-on-migrate), so this script only ever runs against an empty database and
+-- everything added since goes into later versions.
+
+CREATE TABLE _user (
+    id varchar(255) NOT NULL,
+    firstname varchar(255),
+    lastname varchar(255),
+    date_of_birth date,
+    email varchar(255) NOT NULL CONSTRAINT UKk11y3pdtsrjgy8w9b6q4bjwrx UNIQUE,
+    password varchar(255) NOT NULL,
+    account_locked boolean NOT NULL,
+    enabled boolean NOT NULL,
+    created_date timestamp(6) NOT NULL,
+    last_modified_date timestamp(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE role (
+    id varchar(255) NOT NULL,
+    name varchar(255) CHECK (name IN ('ADMIN', 'USER')),
+    created_date timestamp(6) NOT NULL,
+    last_modified_date timestamp(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE user_roles (
+    user_id varchar(255) NOT NULL,
+    role_id varchar(255) NOT NULL
+);
+
+CREATE TABLE token (
+    id varchar(255) NOT NULL,
+    token varchar(200) NOT NULL CONSTRAINT UKpddrhgwxnms2aceeku9s2ewy5 UNIQUE,
+    user_id varchar(255) NOT NULL,
+    expires_at timestamp(6) with time zone NOT NULL,
+    consumed_at timestamp(6) with time zone,
+    type varchar(255) NOT NULL CHECK (type IN ('EMAIL_VERIFICATION')),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE book (
+    id varchar(255) NOT NULL,
+    title varchar(255),
+    author_name varchar(255),
+    isbn varchar(255),
+    synopsis varchar(255),
+    book_cover varchar(255),
+    archived boolean NOT NULL,
+    shareable boolean NOT NULL,
+    owner_id varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by varchar(255),
+    updated_by varchar(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE book_transaction (
+    id varchar(255) NOT NULL,
+    returned boolean NOT NULL,
+    return_approved boolean NOT NULL,
+    user_id varchar(255),
+    book_id varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by varchar(255),
+    updated_by varchar(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE feedback (
+    id varchar(255) NOT NULL,
+    note float(53),
+    comment varchar(255),
+    book_id varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by varchar(255),
+    updated_by varchar(255),
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE book ADD CONSTRAINT FK61m8am98w4y4vgpl82sojy8bh FOREIGN KEY (owner_id) REFERENCES _user;
+ALTER TABLE book_transaction ADD CONSTRAINT FK4iluk8d0jk88e4ojsh05cak2d FOREIGN KEY (book_id) REFERENCES book;
+ALTER TABLE book_transaction ADD CONSTRAINT FK5h5m361bo0i1atols9ysrxiyh FOREIGN KEY (user_id) REFERENCES _user;
+ALTER TABLE feedback ADD CONSTRAINT FKgclyi456gw0lcd6xcfj2l7r6s FOREIGN KEY (book_id) REFERENCES book;
+ALTER TABLE token ADD CONSTRAINT FKiblu4cjwvyntq3ugo31klp1c6 FOREIGN KEY (user_id) REFERENCES _user;
+ALTER TABLE user_roles ADD CONSTRAINT FKrhfovtciq1l558cw6udg0h0d3 FOREIGN KEY (role_id) REFERENCES role;
+ALTER TABLE user_roles ADD CONSTRAINT FKcbsnrgq3e9qe6kuxq7wx6vlfm FOREIGN KEY (user_id) REFERENCES _user;
@@ -0,0 +1,90 @@
+-- Everything added between the ddl-auto release and the move to migrations: full-text search,
+-- versioned loans, the waitlist, per-book rating totals and the transaction archive, then the
+-- backfills that bring existing rows in line with them; their indexes on tables that already hold
+-- rows follow in V7. Builds that still ran ddl-auto=update with the old schema-extensions.sql script
+-- created some of these objects already, under the same names, so every statement is written to
+-- skip what exists.
+
+ALTER TABLE book
+    ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL,
+    ADD COLUMN IF NOT EXISTS search_vector tsvector,
+    ADD COLUMN IF NOT EXISTS active_transaction_id varchar(255) UNIQUE
+        CONSTRAINT FKrrn67a6ho0wwma3hfmyk7hhq0 REFERENCES book_transaction;
+
+ALTER TABLE feedback
+    ADD COLUMN IF NOT EXISTS user_id varchar(255) CONSTRAINT FKf9v8q1tdryk2chpfchi8ybdrp REFERENCES _user;
+
+CREATE SEQUENCE IF NOT EXISTS book_waitlist_ticket_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS book_waitlist_entry (
+    id bigint NOT NULL,
+    book_id varchar(255),
+    user_id varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by varchar(255),
+    updated_by varchar(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_book_waitlist_entry_book_user UNIQUE (book_id, user_id),
+    CONSTRAINT FKmik1nha9ic8kc5eul602be99r FOREIGN KEY (book_id) REFERENCES book,
+    CONSTRAINT FK63v8ufqypuvduq79gu83c5cd5 FOREIGN KEY (user_id) REFERENCES _user
+);
+
+CREATE TABLE IF NOT EXISTS book_rating (
+    book_id varchar(255) NOT NULL,
+    rating_count bigint NOT NULL,
+    rating_sum bigint NOT NULL,
+    one_star bigint NOT NULL,
+    two_stars bigint NOT NULL,
+    three_stars bigint NOT NULL,
+    four_stars bigint NOT NULL,
+    five_stars bigint NOT NULL,
+    PRIMARY KEY (book_id)
+);
+
+-- Cold tier of book_transaction. Approved returns are moved here by BookTransactionArchiveService,
+-- which creates the monthly partition (book_transaction_archive_yYYYYmMM) before moving rows into it.
+-- The hot table keeps only open and recently completed loans, so its unique index on open loans and
+-- the book.active_transaction_id foreign key stay small and enforceable.
+CREATE TABLE IF NOT EXISTS book_transaction_archive (
+    id varchar(255) NOT NULL,
+    returned boolean NOT NULL,
+    return_approved boolean NOT NULL,
+    user_id varchar(255),
+    book_id varchar(255),
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6),
+    created_by varchar(255),
+    updated_by varchar(255),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Waitlist and archive tables are new and empty here, their indexes are built right away. Indexes on
+-- book, book_transaction and feedback, which already hold data, are built concurrently in V7.
+CREATE INDEX IF NOT EXISTS idx_book_waitlist_entry_book_ticket ON book_waitlist_entry (book_id, id);
+CREATE INDEX IF NOT EXISTS idx_book_transaction_archive_user_created_at_id ON book_transaction_archive (user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_book_transaction_archive_created_at_id ON book_transaction_archive (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_book_transaction_archive_book_user ON book_transaction_archive (book_id, user_id);
+
+-- Books written before search existed; from here on BookServiceImpl keeps the vector current.
+UPDATE book SET search_vector =
+    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(author_name, '')), 'B') ||
+    setweight(to_tsvector('english', coalesce(synopsis, '')), 'C')
+WHERE search_vector IS NULL;
+
+-- Books lent out before loans were tracked on the book would otherwise show as available.
+UPDATE book SET active_transaction_id = open_transaction.id
+FROM book_transaction open_transaction
+WHERE open_transaction.book_id = book.id AND open_transaction.returned = false AND book.active_transaction_id IS NULL;
+
+-- Seeds the rating totals of books that were reviewed before the totals existed. Books that already
+-- have a row are left alone, from then on the totals are only moved by FeedbackServiceImpl.
+INSERT INTO book_rating (book_id, rating_count, rating_sum, one_star, two_stars, three_stars, four_stars, five_stars)
+SELECT book_id, COUNT(*), SUM(stars),
+       COUNT(*) FILTER (WHERE stars = 1), COUNT(*) FILTER (WHERE stars = 2), COUNT(*) FILTER (WHERE stars = 3),
+       COUNT(*) FILTER (WHERE stars = 4), COUNT(*) FILTER (WHERE stars = 5)
+FROM (SELECT book_id, LEAST(5, GREATEST(1, ROUND(note)))::int AS stars
+      FROM feedback WHERE book_id IS NOT NULL AND note IS NOT NULL) reviewed
+GROUP BY book_id
+ON CONFLICT (book_id) DO NOTHING;
@@ -0,0 +1,9 @@
+-- Built without blocking writes on tables that already hold data. CONCURRENTLY cannot run inside a
+-- transaction, see the matching .conf file. A build that fails leaves an INVALID index behind, drop
+-- it before running the migration again.
+
+-- Login, token refresh and registration look users up by email regardless of case.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_email_lower ON _user (lower(email));
+
+-- Loading a user for login joins their roles; user_roles had no index on either column.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_roles_user_id ON user_roles (user_id);
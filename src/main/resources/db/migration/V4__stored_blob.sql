@@ -0,0 +1,11 @@
+-- Reference counts of the content-addressed cover files in the upload store. ref_count is the number
+-- of books pointing at the blob; updated_at moves whenever the blob is stored again or a reference
+-- is added or released, and the sweeper only removes blobs that stayed unreferenced for a grace period.
+CREATE TABLE stored_blob (
+    blob_key varchar(80) NOT NULL,
+    ref_count bigint NOT NULL,
+    updated_at timestamp(6) NOT NULL,
+    PRIMARY KEY (blob_key)
+);
+
+CREATE INDEX idx_stored_blob_unreferenced ON stored_blob (updated_at) WHERE ref_count = 0;
@@ -0,0 +1,3 @@
+-- The stored e-book of a book, a content-addressed name in the upload store like book_cover.
+-- Adding a nullable column without a default only touches the catalog, the table is not rewritten.
+ALTER TABLE book ADD COLUMN book_file varchar(255);
@@ -0,0 +1,3 @@
+-- Reviews accept up to 2000 characters (FeedbackRequestDto), the column still had Hibernate's default
+-- of 255. Raising a varchar limit only touches the catalog, the table is not rewritten.
+ALTER TABLE feedback ALTER COLUMN comment TYPE varchar(2000);
@@ -0,0 +1,37 @@
+-- The indexes V2 needs on book, book_transaction and feedback, which already hold data. Built without
+-- blocking writes, CONCURRENTLY cannot run inside a transaction, see the matching .conf file. A build
+-- that fails leaves an INVALID index behind, drop it before running the migration again.
+
+-- Keyset listings: newest books, a user's own books, a user's borrows, and the index feeds.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_created_at_id ON book (created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_created_by_created_at_id ON book (created_by, created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_transaction_user_created_at_id ON book_transaction (user_id, created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_transaction_created_at_id ON book_transaction (created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_feedback_book_created_at_id ON feedback (book_id, created_at, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_search_vector ON book USING GIN (search_vector);
+
+-- At most one open (not yet returned) transaction per book. Borrowers racing for the same copy
+-- are serialized on this index, the loser's insert fails instead of creating a second loan. A book
+-- the old COUNT checks let two users borrow at once fails the migration here; return one of the
+-- loans, drop the INVALID index and run it again.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_book_transaction_open_book ON book_transaction (book_id) WHERE returned = false;
+
+-- Lookups that only care about live loans read these instead of every transaction ever made.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_transaction_open_user_book ON book_transaction (user_id, book_id) WHERE returned = false;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_transaction_awaiting_approval ON book_transaction (book_id, created_at, id)
+    WHERE returned = true AND return_approved = false;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_transaction_archivable ON book_transaction (created_at) WHERE return_approved = true;
+
+-- One review per reader and book. The unique index is built first, attaching it as the constraint
+-- FeedbackServiceImpl recognizes only takes a short lock.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_feedback_book_user ON feedback (book_id, user_id);
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_feedback_book_user') THEN
+        ALTER TABLE feedback ADD CONSTRAINT uk_feedback_book_user UNIQUE USING INDEX uk_feedback_book_user;
+    END IF;
+END $$;
+
+-- Account activation looks its token up by value and type together.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_token_token_type ON token (token, type);
@@ -0,0 +1,105 @@
+package com.fares_elsadek.Readly;
+
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.enums.RoleType;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.repository.RoleRepository;
+import com.fares_elsadek.Readly.repository.UserRepository;
+import com.fares_elsadek.Readly.utils.CustomUserPrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Users and books for the integration tests. Every user made here is remembered until
+ * {@link #cleanUp()}, which deletes them together with everything they own or took part in: their
+ * books, however those were created, and the loans, archived loans, waitlist places and reviews on
+ * either side.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestFixtures {
+
+	private static final List<String> CLEANUP = List.of(
+			"""
+			UPDATE book SET active_transaction_id = NULL WHERE owner_id IN (:users)
+			    OR active_transaction_id IN (SELECT id FROM book_transaction WHERE user_id IN (:users))
+			""",
+			"DELETE FROM feedback WHERE user_id IN (:users) OR book_id IN (SELECT id FROM book WHERE owner_id IN (:users))",
+			"DELETE FROM book_rating WHERE book_id IN (SELECT id FROM book WHERE owner_id IN (:users))",
+			"DELETE FROM book_waitlist_entry WHERE user_id IN (:users) OR book_id IN (SELECT id FROM book WHERE owner_id IN (:users))",
+			"DELETE FROM book_transaction WHERE user_id IN (:users) OR book_id IN (SELECT id FROM book WHERE owner_id IN (:users))",
+			"DELETE FROM book_transaction_archive WHERE user_id IN (:users) OR book_id IN (SELECT id FROM book WHERE owner_id IN (:users))",
+			"DELETE FROM book WHERE owner_id IN (:users)",
+			"DELETE FROM token WHERE user_id IN (:users)",
+			"DELETE FROM user_roles WHERE user_id IN (:users)",
+			"DELETE FROM _user WHERE id IN (:users)");
+
+	private final UserRepository userRepository;
+	private final RoleRepository roleRepository;
+	private final BookRepository bookRepository;
+	private final JdbcTemplate jdbcTemplate;
+
+	private final List<String> userIds = new ArrayList<>();
+
+	/** An enabled user with the USER role unless {@code roles} are given, {@code name} shows up in the email. */
+	public User user(String name, RoleType... roles) {
+		var granted = Arrays.stream(roles.length == 0 ? new RoleType[]{RoleType.USER} : roles)
+				.map(role -> roleRepository.findByName(role).orElseThrow())
+				.toList();
+		var user = userRepository.save(User.builder()
+				.email(name + "-" + UUID.randomUUID() + "@readly.com")
+				.firstname(name)
+				.lastname("Test")
+				.password("{noop}password")
+				.enabled(true)
+				.accountLocked(true)
+				.roles(granted)
+				.build());
+		userIds.add(user.getId());
+		return user;
+	}
+
+	/** A shareable book, saved as {@code owner} so it is audited as theirs. */
+	public Book book(User owner, String title) {
+		var context = SecurityContextHolder.getContext();
+		var previous = context.getAuthentication();
+		authenticateAs(owner);
+		try {
+			return bookRepository.save(Book.builder()
+					.title(title)
+					.authorName("Author")
+					.isbn("9780306406157")
+					.shareable(true)
+					.owner(owner)
+					.build());
+		} finally {
+			context.setAuthentication(previous);
+		}
+	}
+
+	public static void authenticateAs(User user) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				new CustomUserPrincipal(user.getEmail(), user.getId()), null, List.of()));
+	}
+
+	public void cleanUp() {
+		SecurityContextHolder.clearContext();
+		if (userIds.isEmpty())
+			return;
+		var jdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+		var users = Map.of("users", List.copyOf(userIds));
+		CLEANUP.forEach(statement -> jdbc.update(statement, users));
+		userIds.clear();
+	}
+}
@@ -0,0 +1,105 @@
+package com.fares_elsadek.Readly.config.caching;
+
+import com.fares_elsadek.Readly.config.properties.CacheTierProperties;
+import com.fares_elsadek.Readly.config.properties.ReadReplicaProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CacheGenerationsTests {
+
+	private final String bookId = UUID.randomUUID().toString();
+	private final String otherBookId = UUID.randomUUID().toString();
+	private final String userId = UUID.randomUUID().toString();
+	private final String otherUserId = UUID.randomUUID().toString();
+
+	@Autowired
+	private CacheGenerations cacheGenerations;
+	@Autowired
+	private CacheTierProperties properties;
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+	@Autowired
+	private RedisConnectionFactory redisConnectionFactory;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private ReadReplicaProperties readReplicaProperties;
+
+	@AfterEach
+	void tearDown() {
+		redisTemplate.delete(List.of("cache-generation:book:" + bookId, "cache-generation:book:" + otherBookId,
+				"cache-generation:user:" + userId, "cache-generation:user:" + otherUserId));
+	}
+
+	@Test
+	void bumpingAScopeRenamesOnlyTheKeysBuiltFromIt() {
+		var book = cacheGenerations.bookKey(bookId);
+		var otherBook = cacheGenerations.bookKey(otherBookId);
+		var userPage = cacheGenerations.userKey(userId, "owner_0_10");
+		var otherUserPage = cacheGenerations.userKey(otherUserId, "owner_0_10");
+
+		cacheGenerations.bumpBook(bookId);
+		cacheGenerations.bumpUser(userId);
+
+		assertThat(cacheGenerations.bookKey(bookId)).isNotEqualTo(book);
+		assertThat(cacheGenerations.bookKey(otherBookId)).isEqualTo(otherBook);
+		assertThat(cacheGenerations.userKey(userId, "owner_0_10")).isNotEqualTo(userPage);
+		assertThat(cacheGenerations.userKey(otherUserId, "owner_0_10")).isEqualTo(otherUserPage);
+
+		// user pages list other owners' books too, a catalog bump renames them all
+		var catalogPage = cacheGenerations.catalogKey("all_books_0_10");
+		otherUserPage = cacheGenerations.userKey(otherUserId, "owner_0_10");
+		cacheGenerations.bumpCatalog();
+		assertThat(cacheGenerations.catalogKey("all_books_0_10")).isNotEqualTo(catalogPage);
+		assertThat(cacheGenerations.userKey(otherUserId, "owner_0_10")).isNotEqualTo(otherUserPage);
+	}
+
+	@Test
+	void bumpsInsideATransactionWaitForTheCommit() {
+		var before = cacheGenerations.bookKey(bookId);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			cacheGenerations.bumpBook(bookId);
+			assertThat(cacheGenerations.bookKey(bookId)).isEqualTo(before);
+			status.setRollbackOnly();
+		});
+		assertThat(cacheGenerations.bookKey(bookId)).isEqualTo(before);
+
+		transactionTemplate.executeWithoutResult(status -> cacheGenerations.bumpBook(bookId));
+		assertThat(cacheGenerations.bookKey(bookId)).isNotEqualTo(before);
+	}
+
+	@Test
+	void otherNodesPickUpABumpFromItsMessage() throws Exception {
+		var otherNode = new CacheGenerations(properties, readReplicaProperties, redisTemplate);
+		var container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		container.addMessageListener(otherNode, new ChannelTopic(properties.generationChannel()));
+		container.afterPropertiesSet();
+		container.start();
+		try {
+			var cached = otherNode.bookKey(bookId);
+			cacheGenerations.bumpBook(bookId);
+
+			var expected = cacheGenerations.bookKey(bookId);
+			for (int i = 0; i < 100 && otherNode.bookKey(bookId).equals(cached); i++)
+				Thread.sleep(20);
+			assertThat(otherNode.bookKey(bookId)).isEqualTo(expected);
+		} finally {
+			container.destroy();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.fares_elsadek.Readly.config.caching;
+
+import com.fares_elsadek.Readly.enums.CacheCompression;
+import com.fares_elsadek.Readly.enums.CacheValueFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to write and to read back one cached catalog page of {@code pageSize} books, for each way a
+ * cache can store its values and for the {@link GenericJackson2JsonRedisSerializer} the caches used
+ * before. The bytes each codec stores for the page are printed once per trial.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CacheValueSerializerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheValueSerializerBenchmark {
+
+	@Param({"generic-json", "json", "json-deflate", "smile", "smile-deflate"})
+	public String codec;
+
+	@Param({"20", "100"})
+	public int pageSize;
+
+	private Object page;
+	private RedisSerializer<Object> serializer;
+	private byte[] stored;
+
+	@Setup(Level.Trial)
+	public void encodePage() {
+		page = CacheValueSerializerTests.page(pageSize);
+		var threshold = DataSize.ofKilobytes(2);
+		serializer = switch (codec) {
+			case "generic-json" -> new GenericJackson2JsonRedisSerializer();
+			case "json" -> CacheValueSerializerTests.serializer(CacheValueFormat.JSON, CacheCompression.NONE, threshold);
+			case "json-deflate" -> CacheValueSerializerTests.serializer(CacheValueFormat.JSON, CacheCompression.DEFLATE, threshold);
+			case "smile" -> CacheValueSerializerTests.serializer(CacheValueFormat.SMILE, CacheCompression.NONE, threshold);
+			case "smile-deflate" -> CacheValueSerializerTests.serializer(CacheValueFormat.SMILE, CacheCompression.DEFLATE, threshold);
+			default -> throw new IllegalArgumentException("Unknown codec " + codec);
+		};
+		stored = serializer.serialize(page);
+		System.out.println(codec + ", " + pageSize + " books: " + stored.length + " bytes stored");
+	}
+
+	@Benchmark
+	public byte[] serialize() {
+		return serializer.serialize(page);
+	}
+
+	@Benchmark
+	public Object deserialize() {
+		return serializer.deserialize(stored);
+	}
+}
@@ -0,0 +1,97 @@
+package com.fares_elsadek.Readly.config.caching;
+
+import com.fares_elsadek.Readly.config.properties.CacheTierProperties;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookRatingDto;
+import com.fares_elsadek.Readly.dtos.BookResponseDto;
+import com.fares_elsadek.Readly.dtos.CoverImagesDto;
+import com.fares_elsadek.Readly.dtos.UserDto;
+import com.fares_elsadek.Readly.enums.CacheCompression;
+import com.fares_elsadek.Readly.enums.CacheValueFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheValueSerializerTests {
+
+	private static final ApiResponse<List<BookResponseDto>> PAGE = page(100);
+
+	@Test
+	void everyFormatReadsBackThePage() {
+		for (var format : CacheValueFormat.values())
+			for (var compression : CacheCompression.values()) {
+				var serializer = serializer(format, compression, DataSize.ofKilobytes(2));
+				assertThat(serializer.deserialize(serializer.serialize(PAGE))).isEqualTo(PAGE);
+			}
+	}
+
+	@Test
+	void smileAndCompressionShrinkThePage() {
+		var json = serializer(CacheValueFormat.JSON, CacheCompression.NONE, DataSize.ofKilobytes(2)).serialize(PAGE);
+		var smile = serializer(CacheValueFormat.SMILE, CacheCompression.NONE, DataSize.ofKilobytes(2)).serialize(PAGE);
+		var deflated = serializer(CacheValueFormat.SMILE, CacheCompression.DEFLATE, DataSize.ofKilobytes(2)).serialize(PAGE);
+
+		assertThat(smile.length).isLessThan(json.length * 3 / 4);
+		assertThat(deflated.length).isLessThan(smile.length / 2);
+	}
+
+	@Test
+	void valuesUnderTheThresholdAreNotCompressed() {
+		var serializer = serializer(CacheValueFormat.SMILE, CacheCompression.DEFLATE, DataSize.ofKilobytes(2));
+		var single = ApiResponse.success("Book found", PAGE.data().getFirst());
+
+		var bytes = serializer.serialize(single);
+		assertThat(new String(bytes, 0, 2)).isEqualTo(":)");
+		assertThat(serializer.deserialize(bytes)).isEqualTo(single);
+	}
+
+	@Test
+	void entriesWrittenInAnotherFormatStayReadable() {
+		var smile = serializer(CacheValueFormat.SMILE, CacheCompression.DEFLATE, DataSize.ofKilobytes(2));
+		var json = serializer(CacheValueFormat.JSON, CacheCompression.NONE, DataSize.ofKilobytes(2));
+
+		// what the caches held before the codec was configurable
+		assertThat(smile.deserialize(new GenericJackson2JsonRedisSerializer().serialize(PAGE))).isEqualTo(PAGE);
+		assertThat(json.deserialize(smile.serialize(PAGE))).isEqualTo(PAGE);
+		assertThat(new GenericJackson2JsonRedisSerializer().deserialize(json.serialize(PAGE))).isEqualTo(PAGE);
+	}
+
+	static CacheValueSerializer serializer(CacheValueFormat format, CacheCompression compression, DataSize compressAbove) {
+		return new CacheValueSerializer(new CacheTierProperties.Tier(1000L, Duration.ofSeconds(30), Duration.ofMinutes(30),
+				format, compression, compressAbove));
+	}
+
+	/** A catalog page as {@code getAllBooks} caches it: covers, owners and ratings filled in. */
+	static ApiResponse<List<BookResponseDto>> page(int size) {
+		var owners = IntStream.range(0, 20)
+				.mapToObj(i -> new UserDto(UUID.randomUUID().toString(), "Reader" + i, "Lastname" + i, "reader" + i + "@readly.com"))
+				.toList();
+		var books = IntStream.range(0, size).mapToObj(i -> {
+			var cover = UUID.randomUUID().toString().replace("-", "") + UUID.randomUUID().toString().replace("-", "") + ".jpg";
+			var base = "http://localhost:8080/api/v1/book/cover/";
+			return new BookResponseDto(
+					UUID.randomUUID().toString(),
+					"The Collected Stories, Volume " + i,
+					"Author Number " + (i % 37),
+					"97803064061" + String.format("%02d", i % 100),
+					"A sweeping story of a family across three generations, told through letters, diaries and the "
+							+ "recollections of the people who knew them. Book " + i + " of the series picks up where the "
+							+ "last one left off and follows the youngest daughter to the city.",
+					cover,
+					new CoverImagesDto(base + cover, base + cover + "?variant=small", base + cover + "?variant=medium",
+							base + cover + "?variant=placeholder"),
+					i % 5 != 0,
+					owners.get(i % owners.size()),
+					new BookRatingDto(i * 3L, 3.5 + (i % 3) / 2.0, Map.of(1, (long) i % 4, 3, (long) i % 7, 5, (long) i)));
+		}).toList();
+		return ApiResponse.success("Books retrieved successfully", books);
+	}
+}
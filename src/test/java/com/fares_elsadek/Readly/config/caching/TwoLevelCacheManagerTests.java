@@ -0,0 +1,111 @@
+package com.fares_elsadek.Readly.config.caching;
+
+import com.fares_elsadek.Readly.config.properties.CacheTierProperties;
+import com.fares_elsadek.Readly.enums.CacheCompression;
+import com.fares_elsadek.Readly.enums.CacheValueFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Two cache managers on one Redis stand in for two nodes of the application. */
+@SpringBootTest
+class TwoLevelCacheManagerTests {
+
+	private final String cacheName = "two-level-test-" + UUID.randomUUID();
+	private final CacheTierProperties properties = new CacheTierProperties("two-level-test:" + cacheName, "two-level-test-generations:" + cacheName,
+			new CacheTierProperties.Tier(100L, Duration.ofMinutes(1), Duration.ofMinutes(1),
+					CacheValueFormat.SMILE, CacheCompression.DEFLATE, DataSize.ofKilobytes(2)),
+			Map.of("redis-only", new CacheTierProperties.Tier(0L, null, null, null, null, null)));
+	private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+	@Autowired
+	private RedisConnectionFactory redisConnectionFactory;
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@AfterEach
+	void tearDown() throws Exception {
+		for (var container : containers)
+			container.destroy();
+		redisTemplate.delete(List.of(cacheName + "::hot", cacheName + "::other"));
+	}
+
+	@Test
+	void evictionOnOneNodeDropsTheLocalCopyOnTheOther() throws Exception {
+		var first = node().getCache(cacheName);
+		var second = node().getCache(cacheName);
+
+		first.put("hot", "v1");
+		assertThat(second.get("hot", String.class)).isEqualTo("v1");
+		// served from the heap now, without asking Redis
+		redisTemplate.delete(cacheName + "::hot");
+		assertThat(second.get("hot", String.class)).isEqualTo("v1");
+
+		first.put("hot", "v2");
+		first.evict("hot");
+		awaitMissing(second, "hot");
+		assertThat(first.get("hot")).isNull();
+	}
+
+	@Test
+	void clearOnOneNodeDropsEveryLocalCopyOnTheOther() throws Exception {
+		var first = node().getCache(cacheName);
+		var second = node().getCache(cacheName);
+		first.put("hot", "v1");
+		first.put("other", "v1");
+		second.get("hot");
+		second.get("other");
+
+		first.clear();
+		awaitMissing(second, "hot");
+		awaitMissing(second, "other");
+	}
+
+	@Test
+	void cachesWithoutALocalTierStayInRedis() throws Exception {
+		assertThat(node().getCache("redis-only")).isNotInstanceOf(TwoLevelCache.class);
+		assertThat(node().getCache(cacheName)).isInstanceOf(TwoLevelCache.class);
+	}
+
+	private void awaitMissing(Cache cache, String key) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			if (cache.get(key) == null)
+				return;
+			Thread.sleep(20);
+		}
+		throw new AssertionError("Local copy of " + key + " was never invalidated");
+	}
+
+	private TwoLevelCacheManager node() throws Exception {
+		var redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+				.cacheDefaults(RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(1)))
+				.build();
+		var manager = new TwoLevelCacheManager(redisCacheManager, properties, redisTemplate);
+		manager.afterPropertiesSet();
+
+		var container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		container.addMessageListener(manager, new ChannelTopic(properties.invalidationChannel()));
+		container.afterPropertiesSet();
+		container.start();
+		containers.add(container);
+		return manager;
+	}
+}
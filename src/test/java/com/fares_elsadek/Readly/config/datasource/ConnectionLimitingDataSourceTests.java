@@ -0,0 +1,63 @@
+package com.fares_elsadek.Readly.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class ConnectionLimitingDataSourceTests {
+
+	@Autowired
+	private DataSourceProperties dataSourceProperties;
+
+	private HikariDataSource pool;
+	private ConnectionLimitingDataSource dataSource;
+
+	@BeforeEach
+	void setUp() {
+		pool = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		pool.setMaximumPoolSize(2);
+		pool.setConnectionTimeout(250);
+		dataSource = new ConnectionLimitingDataSource(pool);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		dataSource.close();
+		assertThat(pool.isClosed()).isTrue();
+	}
+
+	@Test
+	void handsOutNoMoreConnectionsThanThePoolHolds() throws Exception {
+		var first = dataSource.getConnection();
+		var second = dataSource.getConnection();
+
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+		// closing twice gives back a single permit
+		first.close();
+		first.close();
+		try (var third = dataSource.getConnection()) {
+			assertThat(third.isValid(1)).isTrue();
+			assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+		}
+		second.close();
+	}
+
+	@Test
+	void connectionsCompareByIdentity() throws Exception {
+		try (var connection = dataSource.getConnection(); var other = dataSource.getConnection()) {
+			assertThat(connection).isEqualTo(connection).isNotEqualTo(other);
+			assertThat(connection.hashCode()).isEqualTo(connection.hashCode());
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.fares_elsadek.Readly.config.datasource;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.config.caching.CacheGenerations;
+import com.fares_elsadek.Readly.dtos.BookResponseDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.services.book.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The replica is the primary database reached under another application name, which makes the
+ * server that answered a query visible without running a second instance. Point
+ * {@code app.datasource.replicas[0].url} at the replica from docker-compose.yml to run the same
+ * checks against real streaming replication.
+ */
+@SpringBootTest(properties = {
+		"app.datasource.replicas[0].url=${spring.datasource.url}&ApplicationName=readly-replica",
+		"app.datasource.read-your-writes-window=1m"
+})
+class ReadReplicaRoutingTests {
+
+	private static final String REPLICA = "readly-replica";
+
+	@TestConfiguration
+	static class NoCacheConfig {
+		@Bean
+		@Primary
+		CacheManager noOpCacheManager() {
+			return new NoOpCacheManager();
+		}
+	}
+
+	@Autowired
+	private BookService bookService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+	@Autowired
+	private CacheGenerations cacheGenerations;
+
+	private User owner;
+	private User borrower;
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("replica");
+		borrower = fixtures.user("replica");
+		book = fixtures.book(owner, "Replicated");
+		// each test starts as a new request, as if the last anonymous write was long ago
+		redisTemplate.delete("read-your-writes:anonymous");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+	}
+
+	@AfterEach
+	void tearDown() {
+		fixtures.cleanUp();
+		for (var user : List.of(owner, borrower))
+			redisTemplate.delete("read-your-writes:" + user.getId());
+		redisTemplate.delete("read-your-writes:anonymous");
+	}
+
+	@Test
+	void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+		assertThat(applicationName(true)).isEqualTo(REPLICA);
+		assertThat(applicationName(false)).isNotEqualTo(REPLICA);
+
+		// the owner's recent write of the book does not pull other readers onto the primary
+		authenticateAs(borrower);
+		assertThat(applicationName(true)).isEqualTo(REPLICA);
+	}
+
+	@Test
+	void borrowerReadsTheirOwnBorrowFromThePrimary() {
+		authenticateAs(borrower);
+		bookService.borrowBook(book.getId());
+
+		assertThat(applicationName(true)).isNotEqualTo(REPLICA);
+		assertThat(bookService.findAllBorrowedBooks(0, 10).data())
+				.extracting(BookResponseDto::id)
+				.containsExactly(book.getId());
+	}
+
+	@Test
+	void onlyRefillsOfAScopeThatJustAdvancedReadThePrimary() {
+		authenticateAs(borrower);
+		cacheGenerations.bumpBook(book.getId());
+		// other reads, including keys of untouched scopes, stay on the replica
+		assertThat(applicationName(true)).isEqualTo(REPLICA);
+		cacheGenerations.bookKey(UUID.randomUUID().toString());
+		assertThat(applicationName(true)).isEqualTo(REPLICA);
+
+		// whoever misses the cache next refills it under the new generation, from a replica it could be the old row
+		cacheGenerations.bookKey(book.getId());
+		assertThat(applicationName(true)).isNotEqualTo(REPLICA);
+		assertThat(applicationName(true)).isEqualTo(REPLICA);
+	}
+
+	@Test
+	void anonymousReadsFollowAnonymousWrites() {
+		assertThat(applicationName(true)).isEqualTo(REPLICA);
+
+		// e.g. activating an account, the login right after it must see the enabled user
+		applicationName(false);
+		assertThat(applicationName(true)).isNotEqualTo(REPLICA);
+	}
+
+	private String applicationName(boolean readOnly) {
+		var template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(readOnly);
+		return template.execute(status -> jdbcTemplate.queryForObject("SELECT current_setting('application_name')", String.class));
+	}
+}
@@ -0,0 +1,197 @@
+package com.fares_elsadek.Readly.controller;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.BookTransaction;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.enums.RoleType;
+import com.fares_elsadek.Readly.repository.BookHistoryRepository;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.services.recommendation.BookRecommendationService;
+import com.fares_elsadek.Readly.services.similarity.BookSimilarityService;
+import com.fares_elsadek.Readly.utils.JwtUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the fetch plan of every {@link BookController} endpoint by asserting how many SQL
+ * statements a single request prepares. A lazy association that starts loading per row shows up
+ * here as a jump in the count long before it shows up as latency.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		// the index polls share the session factory statistics, keep them to the startup run
+		"app.recommendations.poll-interval=1h",
+		"app.similarity.poll-interval=1h"
+})
+class BookControllerStatementCountTests {
+
+	private static final int BOOK_COUNT = 12;
+
+	@TestConfiguration
+	static class NoCacheConfig {
+		@Bean
+		@Primary
+		CacheManager noOpCacheManager() {
+			return new NoOpCacheManager();
+		}
+	}
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private JwtUtil jwtUtil;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private BookRepository bookRepository;
+	@Autowired
+	private BookHistoryRepository bookHistoryRepository;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private BookRecommendationService bookRecommendationService;
+	@Autowired
+	private BookSimilarityService bookSimilarityService;
+
+	private Statistics statistics;
+	private User owner;
+	private User borrower;
+	private final List<Book> books = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		// waits for the startup catch-ups if they are still running
+		bookRecommendationService.catchUp();
+		bookSimilarityService.catchUp();
+		owner = fixtures.user("statement-count", RoleType.USER, RoleType.ADMIN);
+		borrower = fixtures.user("statement-count");
+
+		authenticateAs(owner);
+		for (int i = 0; i < BOOK_COUNT; i++) {
+			books.add(bookRepository.save(Book.builder()
+					.title("Statement count " + i)
+					.authorName("Author " + i)
+					.isbn("9780306406157")
+					.synopsis("statementcount fixture")
+					.shareable(true)
+					.owner(owner)
+					.build()));
+		}
+		transactionTemplate.executeWithoutResult(status ->
+				bookRepository.refreshSearchVectors(books.stream().map(Book::getId).toList()));
+
+		authenticateAs(borrower);
+		for (int i = 0; i < BOOK_COUNT / 2; i++) {
+			bookHistoryRepository.save(BookTransaction.builder()
+					.book(books.get(i))
+					.user(borrower)
+					.build());
+		}
+		SecurityContextHolder.clearContext();
+	}
+
+	@AfterEach
+	void tearDown() {
+		fixtures.cleanUp();
+		books.clear();
+	}
+
+	@Test
+	void readEndpointsUseAFixedNumberOfStatements() throws Exception {
+		assertStatements(1, get("/book/{id}", books.get(0).getId()), owner);
+		// page size below the fixture size so the paged endpoints also run their count query
+		assertStatements(2, get("/book").param("size", "5"), owner);
+		assertStatements(2, get("/book/owner").param("size", "5"), owner);
+		assertStatements(2, get("/book/borrowed").param("size", "5"), borrower);
+		assertStatements(1, get("/book/scroll").param("size", "50"), owner);
+		assertStatements(1, get("/book/owner/scroll").param("size", "50"), owner);
+		assertStatements(1, get("/book/borrowed/scroll").param("size", "50"), borrower);
+		assertStatements(2, get("/book/search").param("q", "statementcount").param("size", "50"), owner);
+	}
+
+	@Test
+	void exportEndpointsStreamFromOneStatement() throws Exception {
+		assertStatements(1, get("/book/export"), owner);
+		assertStatements(1, get("/book/transactions/export"), owner);
+	}
+
+	@Test
+	void writeEndpointsUseAFixedNumberOfStatements() throws Exception {
+		assertStatements(3, post("/book")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("""
+						{"title":"Statement count new","authorName":"Author","isbn":"9780306406157"}
+						"""), owner);
+		assertStatements(2, patch("/book/shareable/{id}", books.get(BOOK_COUNT - 1).getId()), owner);
+		assertStatements(2, patch("/book/archived/{id}", books.get(BOOK_COUNT - 1).getId()), owner);
+		assertStatements(2, post("/book/import")
+				.contentType("text/csv")
+				.content("title,authorName,isbn\nImported one,Author,9780306406157\nImported two,Author,9780306406157\n"), owner);
+	}
+
+	@Test
+	void lendingEndpointsUseAFixedNumberOfStatements() throws Exception {
+		var available = books.get(BOOK_COUNT - 2).getId();
+		assertStatements(4, post("/book/borrow/{id}", available), borrower);
+		assertStatements(2, patch("/book/borrow/return/{id}", available), borrower);
+		assertStatements(5, patch("/book/borrow/return/approve/{id}", available), owner);
+	}
+
+	private void assertStatements(long expected, RequestBuilder request, User user) throws Exception {
+		var authorized = withToken(request, user);
+		statistics.clear();
+		MvcResult result = mockMvc.perform(authorized).andReturn();
+		if (result.getRequest().isAsyncStarted())
+			result = mockMvc.perform(asyncDispatch(result)).andReturn();
+		status().isOk().match(result);
+		assertThat(statistics.getPrepareStatementCount())
+				.as("statements prepared by %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+				.isEqualTo(expected);
+	}
+
+	private RequestBuilder withToken(RequestBuilder request, User user) {
+		var token = jwtUtil.generateAccessToken(user.getEmail(), Map.of(
+				"authorities", user.getRoles().stream().map(role -> role.getName().toString()).toList(),
+				"type", "access",
+				"userId", user.getId()));
+		return servletContext -> {
+			var built = request.buildRequest(servletContext);
+			built.addHeader("Authorization", "Bearer " + token);
+			return built;
+		};
+	}
+}
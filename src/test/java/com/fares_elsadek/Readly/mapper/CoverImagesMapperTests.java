@@ -0,0 +1,57 @@
+package com.fares_elsadek.Readly.mapper;
+
+import com.fares_elsadek.Readly.enums.CoverVariant;
+import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CoverImagesMapperTests {
+
+	private static final String COVER = "front-3f2a.png";
+
+	@TempDir
+	Path dir;
+
+	private CoverImagesMapper mapper;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		var uploadFilesService = mock(UploadFilesService.class);
+		when(uploadFilesService.locate(anyString())).thenAnswer(call -> dir.resolve(call.<String>getArgument(0)));
+		mapper = new CoverImagesMapper("/api/v1", uploadFilesService);
+		Files.writeString(dir.resolve(COVER), "cover");
+	}
+
+	@Test
+	void derivativesOnDiskAreLinked() throws Exception {
+		for (var variant : CoverVariant.values())
+			Files.writeString(dir.resolve(variant.fileName(COVER)), "derivative");
+
+		var images = mapper.toCoverImages(COVER);
+
+		assertThat(images.originalUrl()).isEqualTo("/api/v1/book/cover/files/front-3f2a.png");
+		assertThat(images.smallUrl()).isEqualTo("/api/v1/book/cover/files/front-3f2a.small.png");
+		assertThat(images.mediumUrl()).isEqualTo("/api/v1/book/cover/files/front-3f2a.medium.png");
+		assertThat(images.placeholderUrl()).isEqualTo("/api/v1/book/cover/files/front-3f2a.placeholder.jpg");
+	}
+
+	@Test
+	void missingDerivativesFallBackToTheOriginal() throws Exception {
+		Files.writeString(dir.resolve(CoverVariant.SMALL.fileName(COVER)), "derivative");
+
+		var images = mapper.toCoverImages(COVER);
+
+		assertThat(images.smallUrl()).isEqualTo("/api/v1/book/cover/files/front-3f2a.small.png");
+		assertThat(images.mediumUrl()).isEqualTo(images.originalUrl());
+		assertThat(images.placeholderUrl()).isEqualTo(images.originalUrl());
+	}
+}
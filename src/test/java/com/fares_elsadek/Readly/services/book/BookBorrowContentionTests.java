@@ -0,0 +1,136 @@
+package com.fares_elsadek.Readly.services.book;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.exceptions.BookUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers a single popular book with concurrent borrow requests. Each round every borrower races
+ * for the same copy, exactly one of them may win, and the winner hands the copy back (and the
+ * owner approves the return) before the next round starts.
+ */
+@Slf4j
+@SpringBootTest
+class BookBorrowContentionTests {
+
+	private static final int BORROWERS = 32;
+	private static final int ROUNDS = 20;
+
+	@TestConfiguration
+	static class NoCacheConfig {
+		@Bean
+		@Primary
+		CacheManager noOpCacheManager() {
+			return new NoOpCacheManager();
+		}
+	}
+
+	@Autowired
+	private BookService bookService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User owner;
+	private final List<User> borrowers = new ArrayList<>();
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("contention");
+		for (int i = 0; i < BORROWERS; i++)
+			borrowers.add(fixtures.user("contention"));
+		book = fixtures.book(owner, "Contended");
+	}
+
+	@AfterEach
+	void tearDown() {
+		fixtures.cleanUp();
+		borrowers.clear();
+	}
+
+	@Test
+	void exactlyOneConcurrentBorrowerWinsEachRound() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(BORROWERS);
+		long attempts = 0;
+		long started = System.nanoTime();
+		try {
+			for (int round = 0; round < ROUNDS; round++) {
+				var gate = new CountDownLatch(1);
+				var outcomes = new ArrayList<Future<Boolean>>();
+				for (var borrower : borrowers) {
+					outcomes.add(executor.submit(() -> {
+						authenticateAs(borrower);
+						try {
+							gate.await();
+							bookService.borrowBook(book.getId());
+							return true;
+						} catch (BookUnavailableException ex) {
+							return false;
+						} finally {
+							SecurityContextHolder.clearContext();
+						}
+					}));
+				}
+				gate.countDown();
+
+				int winners = 0;
+				for (var outcome : outcomes)
+					if (outcome.get(30, TimeUnit.SECONDS))
+						winners++;
+				attempts += BORROWERS;
+
+				assertThat(winners).as("winners in round %d", round).isEqualTo(1);
+				assertThat(openTransactions()).isEqualTo(1);
+				var activeBorrower = jdbcTemplate.queryForObject("""
+						SELECT t.user_id FROM book b JOIN book_transaction t ON t.id = b.active_transaction_id
+						WHERE b.id = ?
+						""", String.class, book.getId());
+
+				authenticateAs(borrowers.stream().filter(b -> b.getId().equals(activeBorrower)).findFirst().orElseThrow());
+				bookService.returnBorrowBook(book.getId());
+				authenticateAs(owner);
+				bookService.approveReturnBorrowBook(book.getId());
+				SecurityContextHolder.clearContext();
+				assertThat(openTransactions()).isZero();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		double seconds = (System.nanoTime() - started) / 1e9;
+		log.info("{} borrow attempts on one book from {} threads in {} rounds: {} attempts/s",
+				attempts, BORROWERS, ROUNDS, String.format("%.0f", attempts / seconds));
+	}
+
+	private long openTransactions() {
+		return jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM book_transaction WHERE book_id = ? AND returned = false", Long.class, book.getId());
+	}
+}
@@ -0,0 +1,163 @@
+package com.fares_elsadek.Readly.services.bookfile;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.dtos.ApiResponse;
+import com.fares_elsadek.Readly.dtos.BookFileUploadDto;
+import com.fares_elsadek.Readly.dtos.BookFileUploadRequestDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.exceptions.AccessDeniedException;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.services.book.BookService;
+import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "app.book-files.chunk-size=1KB")
+class BookFileServiceTests {
+
+	private static final int CHUNK = 1024;
+
+	@Autowired
+	private BookFileService bookFileService;
+	@Autowired
+	private BookService bookService;
+	@Autowired
+	private UploadFilesService uploadFilesService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private BookRepository bookRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	private User owner;
+	private User reader;
+	private Book book;
+	private final List<String> uploads = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("ebook");
+		reader = fixtures.user("ebook");
+		book = fixtures.book(owner, "Readable");
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		for (var uploadId : uploads) {
+			redisTemplate.delete(List.of("book-file-upload:" + uploadId, "book-file-upload:" + uploadId + ":chunks"));
+			Files.deleteIfExists(Path.of("uploads/.incoming", uploadId + ".ebook"));
+		}
+		var bookFile = jdbcTemplate.queryForObject("SELECT book_file FROM book WHERE id = ?", String.class, book.getId());
+		if (bookFile != null) {
+			Files.deleteIfExists(uploadFilesService.locate(bookFile));
+			jdbcTemplate.update("DELETE FROM stored_blob WHERE blob_key = ?", bookFile);
+		}
+		fixtures.cleanUp();
+	}
+
+	@Test
+	void chunksArrivingInAnyOrderAreAssembledAndAttached() throws Exception {
+		var content = pdf(2 * CHUNK + 500);
+		authenticateAs(owner);
+		var uploadId = createUpload("novel.pdf", content.length);
+
+		assertThat(writeChunk(uploadId, 2 * CHUNK, content).success()).isTrue();
+		assertThat(writeChunk(uploadId, 0, content).success()).isTrue();
+		assertThat(bookFileService.getUpload(uploadId).data().missingOffsets()).containsExactly((long) CHUNK);
+		assertThat(bookFileService.completeUpload(uploadId).success()).isFalse();
+
+		// a resent chunk overwrites the same bytes
+		writeChunk(uploadId, CHUNK, content);
+		writeChunk(uploadId, CHUNK, content);
+		var completed = bookFileService.completeUpload(uploadId);
+
+		assertThat(completed.success()).isTrue();
+		var bookFile = bookRepository.findById(book.getId()).orElseThrow().getBookFile();
+		assertThat(bookFile).isEqualTo(completed.data().bookFile()).startsWith("private/").endsWith(".pdf");
+		var download = bookFileService.prepareDownload(book.getId());
+		assertThat(Files.readAllBytes(download.file())).isEqualTo(content);
+		assertThat(download.fileName()).isEqualTo("Readable.pdf");
+	}
+
+	@Test
+	void chunksMustMatchTheChunkGrid() throws Exception {
+		var content = pdf(CHUNK + 10);
+		authenticateAs(owner);
+		var uploadId = createUpload("novel.pdf", content.length);
+
+		assertThat(writeChunk(uploadId, 10, content).success()).isFalse();
+		var shortChunk = bookFileService.writeChunk(uploadId, 0, new ByteArrayInputStream(content, 0, CHUNK - 1));
+		assertThat(shortChunk.success()).isFalse();
+		var longChunk = bookFileService.writeChunk(uploadId, CHUNK, new ByteArrayInputStream(new byte[11]));
+		assertThat(longChunk.success()).isFalse();
+		assertThat(bookFileService.getUpload(uploadId).data().missingOffsets()).containsExactly(0L, (long) CHUNK);
+	}
+
+	@Test
+	void filesThatAreNotEbooksAreRejectedOnCompletion() throws Exception {
+		var content = "just some text".getBytes(StandardCharsets.US_ASCII);
+		authenticateAs(owner);
+		var uploadId = createUpload("novel.epub", content.length);
+		writeChunk(uploadId, 0, content);
+
+		assertThat(bookFileService.completeUpload(uploadId).success()).isFalse();
+		assertThat(bookRepository.findById(book.getId()).orElseThrow().getBookFile()).isNull();
+	}
+
+	@Test
+	void onlyTheOwnerAndActiveBorrowersCanDownload() throws Exception {
+		var content = pdf(100);
+		authenticateAs(owner);
+		var uploadId = createUpload("novel.pdf", content.length);
+		writeChunk(uploadId, 0, content);
+		bookFileService.completeUpload(uploadId);
+
+		authenticateAs(reader);
+		assertThatThrownBy(() -> bookFileService.prepareDownload(book.getId())).isInstanceOf(AccessDeniedException.class);
+		bookService.borrowBook(book.getId());
+		assertThat(bookFileService.prepareDownload(book.getId()).file()).exists();
+		bookService.returnBorrowBook(book.getId());
+		assertThatThrownBy(() -> bookFileService.prepareDownload(book.getId())).isInstanceOf(AccessDeniedException.class);
+	}
+
+	private String createUpload(String fileName, long size) {
+		var uploadId = bookFileService.createUpload(book.getId(), new BookFileUploadRequestDto(fileName, size)).data().uploadId();
+		uploads.add(uploadId);
+		return uploadId;
+	}
+
+	private ApiResponse<BookFileUploadDto> writeChunk(String uploadId, int offset, byte[] content) throws Exception {
+		int length = Math.min(CHUNK, content.length - offset);
+		return bookFileService.writeChunk(uploadId, offset, new ByteArrayInputStream(content, offset, length));
+	}
+
+	private static byte[] pdf(int size) {
+		var content = new byte[size];
+		var header = ("%PDF-1.7 " + UUID.randomUUID()).getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(header, 0, content, 0, header.length);
+		for (int i = header.length; i < size; i++)
+			content[i] = (byte) (i % 251);
+		return content;
+	}
+}
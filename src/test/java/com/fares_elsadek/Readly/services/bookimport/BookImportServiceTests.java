@@ -0,0 +1,60 @@
+package com.fares_elsadek.Readly.services.bookimport;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.dtos.BookImportReportDto;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.enums.ImportFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class BookImportServiceTests {
+
+	@Autowired
+	private BookImportService bookImportService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User owner;
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("import");
+		authenticateAs(owner);
+	}
+
+	@AfterEach
+	void tearDown() {
+		fixtures.cleanUp();
+	}
+
+	@Test
+	void aRowTheDatabaseRejectsOnlyFailsItself() {
+		// passes validation but is longer than the synopsis column, so the batch holding it fails
+		var body = String.join("\n",
+				"{\"title\":\"First\",\"authorName\":\"Author\",\"isbn\":\"9780306406157\"}",
+				"{\"title\":\"Too long\",\"authorName\":\"Author\",\"isbn\":\"9780306406157\",\"synopsis\":\"" + "s".repeat(300) + "\"}",
+				"{\"title\":\"Third\",\"authorName\":\"Author\",\"isbn\":\"9780306406157\"}");
+
+		var report = bookImportService.importBooks(
+				new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON).data();
+
+		assertThat(report.importedRows()).isEqualTo(2);
+		assertThat(report.failedRows()).isEqualTo(1);
+		assertThat(report.errors()).extracting(BookImportReportDto.RowError::line).containsExactly(2L);
+		assertThat(jdbcTemplate.queryForList("SELECT title FROM book WHERE owner_id = ?", String.class, owner.getId()))
+				.containsExactlyInAnyOrder("First", "Third");
+	}
+}
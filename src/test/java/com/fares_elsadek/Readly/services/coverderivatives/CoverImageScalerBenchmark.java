@@ -0,0 +1,77 @@
+package com.fares_elsadek.Readly.services.coverderivatives;
+
+import com.fares_elsadek.Readly.enums.CoverVariant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Covers thumbnailed per second, each op decodes one stored cover and renders and encodes all of
+ * its {@link CoverVariant}s, as the backfill does for every cover in the store. Sources are typical
+ * phone-photo and scan sizes, in both formats covers arrive in. Add {@code -t N} to the JMH
+ * arguments to measure N worker threads.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CoverImageScalerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+public class CoverImageScalerBenchmark {
+
+	@Param({"1200x1800", "4000x6000"})
+	public String size;
+
+	@Param({"jpg", "png"})
+	public String format;
+
+	private Path dir;
+	private Path source;
+	private String cover;
+	private CoverImageScaler scaler;
+
+	@Setup(Level.Trial)
+	public void writeCover() throws IOException {
+		var dimensions = size.split("x");
+		dir = Files.createTempDirectory("cover-benchmark");
+		cover = "cover-1b4e28ba-2fa1-11d2-883f-0016d3cca427." + format;
+		source = dir.resolve(cover);
+		int type = format.equals("png") ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		ImageIO.write(CoverImageScalerTests.cover(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), type),
+				format, source.toFile());
+		scaler = new CoverImageScaler(0.8f);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteCover() throws IOException {
+		try (var files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public Map<CoverVariant, byte[]> derive() throws IOException {
+		return scaler.derive(source, cover);
+	}
+}
@@ -0,0 +1,72 @@
+package com.fares_elsadek.Readly.services.coverderivatives;
+
+import com.fares_elsadek.Readly.enums.CoverVariant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoverImageScalerTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void rendersEveryVariantAtItsFixedSize() throws Exception {
+		var source = dir.resolve("front-1b4e28ba-2fa1-11d2-883f-0016d3cca427.jpg");
+		ImageIO.write(cover(3000, 3000, BufferedImage.TYPE_INT_RGB), "jpg", source.toFile());
+
+		var derivatives = new CoverImageScaler(0.8f).derive(source, source.getFileName().toString());
+
+		assertThat(derivatives).containsOnlyKeys(CoverVariant.values());
+		for (var variant : CoverVariant.values()) {
+			var image = ImageIO.read(new ByteArrayInputStream(derivatives.get(variant)));
+			assertThat(image.getWidth()).isEqualTo(variant.width());
+			assertThat(image.getHeight()).isEqualTo(variant.height());
+			assertThat(image.getColorModel().hasAlpha()).isFalse();
+		}
+		assertThat(derivatives.get(CoverVariant.PLACEHOLDER).length).isLessThan(1024);
+	}
+
+	@Test
+	void transparentCoversKeepPngThumbnails() throws Exception {
+		var source = dir.resolve("front-1b4e28ba-2fa1-11d2-883f-0016d3cca427.png");
+		ImageIO.write(cover(400, 600, BufferedImage.TYPE_INT_ARGB), "png", source.toFile());
+
+		var derivatives = new CoverImageScaler(0.8f).derive(source, source.getFileName().toString());
+
+		var small = ImageIO.read(new ByteArrayInputStream(derivatives.get(CoverVariant.SMALL)));
+		assertThat(small.getColorModel().hasAlpha()).isTrue();
+		assertThat(CoverVariant.SMALL.fileName(source.getFileName().toString()))
+				.isEqualTo("front-1b4e28ba-2fa1-11d2-883f-0016d3cca427.small.png");
+		assertThat(CoverVariant.PLACEHOLDER.fileName(source.getFileName().toString()))
+				.isEqualTo("front-1b4e28ba-2fa1-11d2-883f-0016d3cca427.placeholder.jpg");
+	}
+
+	@Test
+	void filesThatAreNotImagesHaveNoVariants() throws Exception {
+		var source = Files.writeString(dir.resolve("notes-1b4e28ba-2fa1-11d2-883f-0016d3cca427.png"), "not an image");
+
+		assertThat(new CoverImageScaler(0.8f).derive(source, source.getFileName().toString())).isNull();
+	}
+
+	static BufferedImage cover(int width, int height, int type) {
+		var image = new BufferedImage(width, height, type);
+		var graphics = image.createGraphics();
+		for (int y = 0; y < height; y += 10) {
+			graphics.setColor(new Color(y * 255 / height, 80, 255 - y * 255 / height));
+			graphics.fillRect(0, y, width, 10);
+		}
+		graphics.setColor(Color.WHITE);
+		graphics.drawString("A Cover", width / 4, height / 2);
+		graphics.dispose();
+		return image;
+	}
+}
@@ -0,0 +1,183 @@
+package com.fares_elsadek.Readly.services.coverupload;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.dtos.CoverUploadJobDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.enums.CoverUploadStatus;
+import com.fares_elsadek.Readly.enums.CoverVariant;
+import com.fares_elsadek.Readly.exceptions.AccessDeniedException;
+import com.fares_elsadek.Readly.exceptions.NotFoundException;
+import com.fares_elsadek.Readly.repository.BookRepository;
+import com.fares_elsadek.Readly.services.uploadfiles.UploadFilesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class CoverUploadServiceTests {
+
+	private static final byte[] COVER = png(600, 900);
+	private static final String COVER_SHA256 = sha256(COVER);
+
+	@Autowired
+	private CoverUploadService coverUploadService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private BookRepository bookRepository;
+	@Autowired
+	private UploadFilesService uploadFilesService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User owner;
+	private User stranger;
+	private Book book;
+	private Book secondBook;
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("cover");
+		stranger = fixtures.user("cover");
+		book = fixtures.book(owner, "Covered");
+		secondBook = fixtures.book(owner, "Covered");
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		fixtures.cleanUp();
+		var cover = COVER_SHA256 + ".png";
+		Files.deleteIfExists(uploadFilesService.locate(cover));
+		for (var variant : CoverVariant.values())
+			Files.deleteIfExists(uploadFilesService.locate(variant.fileName(cover)));
+		jdbcTemplate.update("DELETE FROM stored_blob WHERE blob_key = ?", cover);
+	}
+
+	@Test
+	void submittedCoverIsAppliedInTheBackground() throws Exception {
+		authenticateAs(owner);
+		var submitted = coverUploadService.submitCoverUpload(book.getId(),
+				new MockMultipartFile("cover", "front.png", "image/png", COVER));
+		assertThat(submitted.success()).isTrue();
+		assertThat(submitted.data().status()).isEqualTo(CoverUploadStatus.PENDING);
+
+		var job = awaitFinished(submitted.data().jobId());
+		assertThat(job.status()).isEqualTo(CoverUploadStatus.COMPLETED);
+		assertThat(job.bookCover()).isEqualTo(COVER_SHA256 + ".png");
+		assertThat(bookRepository.findById(book.getId()).orElseThrow().getBookCover()).isEqualTo(job.bookCover());
+		var stored = uploadFilesService.locate(job.bookCover());
+		assertThat(stored).isEqualTo(Path.of("uploads", COVER_SHA256.substring(0, 2), COVER_SHA256.substring(2, 4), job.bookCover()));
+		assertThat(Files.readAllBytes(stored)).isEqualTo(COVER);
+		for (var variant : CoverVariant.values())
+			assertThat(uploadFilesService.locate(variant.fileName(job.bookCover()))).exists();
+	}
+
+	@Test
+	void sameImageIsStoredOnceAndCountedPerBook() throws Exception {
+		authenticateAs(owner);
+		var first = awaitFinished(coverUploadService.submitCoverUpload(book.getId(),
+				new MockMultipartFile("cover", "front.png", "image/png", COVER)).data().jobId());
+		// the client's name and extension do not matter, the detected format does
+		var second = awaitFinished(coverUploadService.submitCoverUpload(secondBook.getId(),
+				new MockMultipartFile("cover", "copy.jpg", "image/jpeg", COVER)).data().jobId());
+
+		assertThat(second.bookCover()).isEqualTo(first.bookCover());
+		assertThat(refCount(first.bookCover())).isEqualTo(2);
+		try (var shard = Files.list(uploadFilesService.locate(first.bookCover()).getParent())) {
+			assertThat(shard.filter(file -> file.getFileName().toString().startsWith(COVER_SHA256))).hasSize(4);
+		}
+
+		// uploading the cover a book already has changes nothing
+		awaitFinished(coverUploadService.submitCoverUpload(book.getId(),
+				new MockMultipartFile("cover", "front.png", "image/png", COVER)).data().jobId());
+		assertThat(refCount(first.bookCover())).isEqualTo(2);
+	}
+
+	@Test
+	void onlyTheOwnerCanUploadOrPoll() throws Exception {
+		authenticateAs(stranger);
+		assertThatThrownBy(() -> coverUploadService.submitCoverUpload(book.getId(),
+				new MockMultipartFile("cover", "front.png", "image/png", COVER)))
+				.isInstanceOf(AccessDeniedException.class);
+
+		authenticateAs(owner);
+		var jobId = coverUploadService.submitCoverUpload(book.getId(),
+				new MockMultipartFile("cover", "front.png", "image/png", COVER)).data().jobId();
+		awaitFinished(jobId);
+
+		authenticateAs(stranger);
+		assertThatThrownBy(() -> coverUploadService.getJob(jobId)).isInstanceOf(NotFoundException.class);
+	}
+
+	@Test
+	void emptyFileIsRejectedWithoutAJob() {
+		authenticateAs(owner);
+		var response = coverUploadService.submitCoverUpload(book.getId(),
+				new MockMultipartFile("cover", "front.png", "image/png", new byte[0]));
+		assertThat(response.success()).isFalse();
+	}
+
+	@Test
+	void filesThatAreNotImagesFailTheJob() throws Exception {
+		authenticateAs(owner);
+		var jobId = coverUploadService.submitCoverUpload(book.getId(),
+				new MockMultipartFile("cover", "front.png", "image/png", "not an image".getBytes())).data().jobId();
+
+		var job = awaitFinished(jobId);
+		assertThat(job.status()).isEqualTo(CoverUploadStatus.FAILED);
+		assertThat(bookRepository.findById(book.getId()).orElseThrow().getBookCover()).isNull();
+	}
+
+	private long refCount(String cover) {
+		return jdbcTemplate.queryForObject("SELECT ref_count FROM stored_blob WHERE blob_key = ?", Long.class, cover);
+	}
+
+	private CoverUploadJobDto awaitFinished(String jobId) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			var job = coverUploadService.getJob(jobId).data();
+			if (job.status() == CoverUploadStatus.COMPLETED || job.status() == CoverUploadStatus.FAILED)
+				return job;
+			Thread.sleep(50);
+		}
+		throw new AssertionError("Cover upload job " + jobId + " did not finish");
+	}
+
+	private static byte[] png(int width, int height) {
+		var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		var out = new ByteArrayOutputStream();
+		try {
+			ImageIO.write(image, "png", out);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return out.toByteArray();
+	}
+
+	private static String sha256(byte[] content) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.fares_elsadek.Readly.services.feedback;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.dtos.FeedbackRequestDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.BookTransaction;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.repository.BookHistoryRepository;
+import com.fares_elsadek.Readly.services.book.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class FeedbackServiceTests {
+
+	@TestConfiguration
+	static class NoCacheConfig {
+		@Bean
+		@Primary
+		CacheManager noOpCacheManager() {
+			return new NoOpCacheManager();
+		}
+	}
+
+	@Autowired
+	private FeedbackService feedbackService;
+	@Autowired
+	private BookService bookService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private BookHistoryRepository bookHistoryRepository;
+
+	private User owner;
+	private final List<User> readers = new ArrayList<>();
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("feedback");
+		for (int i = 0; i < 3; i++)
+			readers.add(fixtures.user("feedback"));
+		book = fixtures.book(owner, "Reviewed");
+
+		for (var reader : readers) {
+			authenticateAs(reader);
+			bookHistoryRepository.save(BookTransaction.builder()
+					.book(book)
+					.user(reader)
+					.returned(true)
+					.returnApproved(true)
+					.build());
+		}
+		SecurityContextHolder.clearContext();
+	}
+
+	@AfterEach
+	void tearDown() {
+		fixtures.cleanUp();
+		readers.clear();
+	}
+
+	@Test
+	void aggregateFollowsEveryReviewWrite() {
+		authenticateAs(readers.get(0));
+		var first = feedbackService.saveFeedback(book.getId(), new FeedbackRequestDto(4, "Good")).data();
+		authenticateAs(readers.get(1));
+		feedbackService.saveFeedback(book.getId(), new FeedbackRequestDto(5, "Great"));
+		authenticateAs(readers.get(2));
+		var third = feedbackService.saveFeedback(book.getId(), new FeedbackRequestDto(1, "Meh")).data();
+
+		authenticateAs(readers.get(0));
+		feedbackService.updateFeedback(first.id(), new FeedbackRequestDto(2, "Changed my mind"));
+		authenticateAs(readers.get(2));
+		feedbackService.deleteFeedback(third.id());
+
+		var rating = bookService.getBookById(book.getId()).data().rating();
+		assertThat(rating.count()).isEqualTo(2);
+		assertThat(rating.average()).isEqualTo(3.5);
+		assertThat(rating.histogram()).isEqualTo(Map.of(1, 0L, 2, 1L, 3, 0L, 4, 0L, 5, 1L));
+	}
+
+	@Test
+	void reviewsAreListedNewestFirstAcrossPages() {
+		for (var reader : readers) {
+			authenticateAs(reader);
+			feedbackService.saveFeedback(book.getId(), new FeedbackRequestDto(3, reader.getId()));
+		}
+
+		var firstPage = feedbackService.scrollBookFeedbacks(book.getId(), null, 2).data();
+		assertThat(firstPage.hasNext()).isTrue();
+		var secondPage = feedbackService.scrollBookFeedbacks(book.getId(), firstPage.nextCursor(), 2).data();
+		assertThat(secondPage.hasNext()).isFalse();
+
+		var comments = new ArrayList<String>();
+		firstPage.content().forEach(review -> comments.add(review.comment()));
+		secondPage.content().forEach(review -> comments.add(review.comment()));
+		assertThat(comments).containsExactly(readers.get(2).getId(), readers.get(1).getId(), readers.get(0).getId());
+	}
+
+	@Test
+	void reviewsUpToTheValidatedLengthAreStoredInFull() {
+		authenticateAs(readers.get(0));
+		var saved = feedbackService.saveFeedback(book.getId(), new FeedbackRequestDto(4, "a".repeat(1000)));
+		assertThat(saved.success()).isTrue();
+
+		feedbackService.updateFeedback(saved.data().id(), new FeedbackRequestDto(4, "b".repeat(2000)));
+		var stored = feedbackService.scrollBookFeedbacks(book.getId(), null, 10).data().content();
+		assertThat(stored).singleElement().satisfies(review -> assertThat(review.comment()).isEqualTo("b".repeat(2000)));
+	}
+}
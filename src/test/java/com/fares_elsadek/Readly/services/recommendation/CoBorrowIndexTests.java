@@ -0,0 +1,92 @@
+package com.fares_elsadek.Readly.services.recommendation;
+
+import com.fares_elsadek.Readly.dtos.BookRecommendationDto;
+import com.fares_elsadek.Readly.repository.projection.BorrowRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoBorrowIndexTests {
+
+	private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+	private int sequence;
+
+	@Test
+	void ranksBooksBorrowedByTheSameReaders() {
+		var index = new CoBorrowIndex(10);
+		index.apply(List.of(
+				borrow("alice", "dune"), borrow("alice", "foundation"), borrow("alice", "hyperion"),
+				borrow("bob", "dune"), borrow("bob", "foundation"),
+				borrow("carol", "dune"), borrow("carol", "emma"),
+				borrow("dave", "emma")));
+
+		var recommendations = index.recommend("dune", 10);
+
+		assertThat(recommendations).extracting(BookRecommendationDto::bookId)
+				.containsExactly("foundation", "hyperion", "emma");
+		assertThat(recommendations.get(0).coBorrowers()).isEqualTo(2);
+		assertThat(recommendations.get(0).title()).isEqualTo("Title foundation");
+		assertThat(index.recommend("dune", 1)).hasSize(1);
+		assertThat(index.recommend("unknown", 10)).isEmpty();
+	}
+
+	@Test
+	void borrowingTheSameBookAgainIsCountedOnce() {
+		var index = new CoBorrowIndex(10);
+		index.apply(List.of(borrow("alice", "dune"), borrow("alice", "emma"),
+				borrow("alice", "dune"), borrow("alice", "emma")));
+
+		assertThat(index.recommend("dune", 10)).singleElement()
+				.satisfies(recommendation -> {
+					assertThat(recommendation.coBorrowers()).isEqualTo(1);
+					assertThat(recommendation.score()).isEqualTo(1.0);
+				});
+	}
+
+	@Test
+	void historyIsCappedToTheMostRecentBooks() {
+		var index = new CoBorrowIndex(2);
+		index.apply(List.of(borrow("alice", "a"), borrow("alice", "b"), borrow("alice", "c"), borrow("alice", "d")));
+
+		assertThat(index.recommend("d", 10)).extracting(BookRecommendationDto::bookId)
+				.containsExactlyInAnyOrder("b", "c");
+	}
+
+	@Test
+	void snapshotRoundTripKeepsCountsAndWatermark() throws Exception {
+		var index = new CoBorrowIndex(10);
+		var records = new ArrayList<BorrowRecord>();
+		for (int user = 0; user < 200; user++)
+			for (int book = user % 7; book < 30; book += 3)
+				records.add(borrow("user-" + user, "book-" + book));
+		index.apply(records);
+
+		var bytes = new ByteArrayOutputStream();
+		index.writeTo(new DataOutputStream(bytes));
+		var restored = CoBorrowIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 10);
+
+		assertThat(restored.watermarkCreatedAt()).isEqualTo(index.watermarkCreatedAt());
+		assertThat(restored.watermarkId()).isEqualTo(index.watermarkId());
+		for (int book = 0; book < 30; book++)
+			assertThat(restored.recommend("book-" + book, 50)).isEqualTo(index.recommend("book-" + book, 50));
+
+		// histories survive too: a new borrow pairs with the books the reader had before the restart
+		var next = borrow("user-0", "book-new");
+		index.apply(List.of(next));
+		restored.apply(List.of(next));
+		assertThat(restored.recommend("book-new", 50)).isEqualTo(index.recommend("book-new", 50)).isNotEmpty();
+	}
+
+	private BorrowRecord borrow(String userId, String bookId) {
+		int id = sequence++;
+		return new BorrowRecord("tx-" + id, start.plusSeconds(id), userId, bookId, "Title " + bookId, "Author");
+	}
+}
@@ -0,0 +1,76 @@
+package com.fares_elsadek.Readly.services.similarity;
+
+import com.fares_elsadek.Readly.dtos.SimilarBookDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link SimilarBookIndex} over a synthetic catalog. Words are drawn from a
+ * Zipf-like vocabulary so a few terms are shared by most books, as in real synopses, and a share of
+ * the books are written as variations of a common "series" text.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SimilarBookIndexBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class SimilarBookIndexBenchmark {
+
+	private static final int VOCABULARY = 50_000;
+	private static final int SERIES = 5_000;
+
+	@Param({"100000", "1000000"})
+	public int books;
+
+	private SimilarBookIndex index;
+	private String[] queries;
+	private SplittableRandom random;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void buildCatalog() {
+		index = new SimilarBookIndex(32, 3, 1000, 200);
+		random = new SplittableRandom(42);
+		for (int book = 0; book < books; book++) {
+			int series = random.nextInt(4) == 0 ? random.nextInt(SERIES) : -1;
+			index.add("book-" + book, words(3, series), "author " + random.nextInt(books / 4 + 1), words(30, series));
+		}
+		queries = new String[4096];
+		for (int i = 0; i < queries.length; i++)
+			queries[i] = "book-" + random.nextInt(books);
+	}
+
+	@Benchmark
+	public List<SimilarBookDto> similarTo() {
+		return index.similarTo(queries[next++ & (queries.length - 1)], 10);
+	}
+
+	private String words(int count, int series) {
+		var text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			// series books share half of their words with the series' own word list
+			int word = series >= 0 && random.nextBoolean() ?
+					new SplittableRandom(series * 131L + i % 12).nextInt(VOCABULARY) :
+					(int) Math.min(VOCABULARY - 1, Math.floor(Math.pow(VOCABULARY, random.nextDouble())));
+			text.append('w').append(word).append(' ');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,52 @@
+package com.fares_elsadek.Readly.services.similarity;
+
+import com.fares_elsadek.Readly.dtos.SimilarBookDto;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimilarBookIndexTests {
+
+	@Test
+	void findsBooksSharingTitleAuthorAndSynopsisTerms() {
+		var index = new SimilarBookIndex(32, 3, 1000, 200);
+		index.add("dune", "Dune", "Frank Herbert",
+				"A desert planet, giant sandworms and the spice melange that every empire depends on.");
+		index.add("dune-messiah", "Dune Messiah", "Frank Herbert",
+				"Paul rules the empire from the desert planet Arrakis while the spice melange flows.");
+		index.add("children-of-dune", "Children of Dune", "Frank Herbert",
+				"The twins of Paul grow up on the desert planet of sandworms and spice.");
+		index.add("emma", "Emma", "Jane Austen",
+				"A young woman in a country village meddles in the romances of her friends.");
+
+		var similar = index.similarTo("dune", 10);
+
+		assertThat(similar).extracting(SimilarBookDto::bookId)
+				.contains("dune-messiah", "children-of-dune")
+				.doesNotContain("dune", "emma");
+		assertThat(similar).extracting(SimilarBookDto::score).isSortedAccordingTo((a, b) -> Double.compare(b, a));
+		assertThat(index.similarTo("dune", 1)).hasSize(1);
+	}
+
+	@Test
+	void unknownAndEmptyBooksHaveNoNeighbours() {
+		var index = new SimilarBookIndex(32, 3, 1000, 200);
+		index.add("blank", null, null, "");
+		index.add("blank-too", "", null, null);
+
+		assertThat(index.similarTo("blank", 10)).isEmpty();
+		assertThat(index.similarTo("missing", 10)).isEmpty();
+	}
+
+	@Test
+	void addingTheSameBookTwiceIndexesItOnce() {
+		var index = new SimilarBookIndex(32, 3, 1000, 200);
+		index.add("dune", "Dune", "Frank Herbert", "Desert planet and spice");
+		index.add("dune", "Dune", "Frank Herbert", "Desert planet and spice");
+		index.add("dune-messiah", "Dune Messiah", "Frank Herbert", "Desert planet and spice");
+
+		assertThat(index.bookCount()).isEqualTo(2);
+		assertThat(index.similarTo("dune-messiah", 10)).singleElement()
+				.extracting(SimilarBookDto::bookId).isEqualTo("dune");
+	}
+}
@@ -0,0 +1,99 @@
+package com.fares_elsadek.Readly.services.transactionarchive;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.dtos.BookResponseDto;
+import com.fares_elsadek.Readly.dtos.FeedbackRequestDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.enums.CountMode;
+import com.fares_elsadek.Readly.services.book.BookService;
+import com.fares_elsadek.Readly.services.feedback.FeedbackService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDateTime;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class BookTransactionArchiveServiceTests {
+
+	@TestConfiguration
+	static class NoCacheConfig {
+		@Bean
+		@Primary
+		CacheManager noOpCacheManager() {
+			return new NoOpCacheManager();
+		}
+	}
+
+	@Autowired
+	private BookTransactionArchiveService archiveService;
+	@Autowired
+	private BookService bookService;
+	@Autowired
+	private FeedbackService feedbackService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User owner;
+	private User reader;
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("archive");
+		reader = fixtures.user("archive");
+		book = fixtures.book(owner, "Archived history");
+
+		authenticateAs(reader);
+		bookService.borrowBook(book.getId());
+		bookService.returnBorrowBook(book.getId());
+		authenticateAs(owner);
+		bookService.approveReturnBorrowBook(book.getId());
+		SecurityContextHolder.clearContext();
+	}
+
+	@AfterEach
+	void tearDown() {
+		fixtures.cleanUp();
+	}
+
+	@Test
+	void approvedLoansMoveToTheArchiveAndStayVisible() {
+		assertThat(archiveService.archiveApprovedBefore(LocalDateTime.now().minusDays(1))).isZero();
+		assertThat(count("book_transaction")).isEqualTo(1);
+
+		assertThat(archiveService.archiveApprovedBefore(LocalDateTime.now().plusMinutes(1))).isPositive();
+		assertThat(count("book_transaction")).isZero();
+		assertThat(count("book_transaction_archive")).isEqualTo(1);
+
+		authenticateAs(reader);
+		var borrowed = bookService.scrollBorrowedBooks(null, 10, CountMode.EXACT).data();
+		assertThat(borrowed.content()).extracting(BookResponseDto::id).containsExactly(book.getId());
+		assertThat(borrowed.totalElements()).isEqualTo(1);
+		// reviewing requires a past loan, which now only exists in the archive
+		feedbackService.saveFeedback(book.getId(), new FeedbackRequestDto(4, "Still counts"));
+
+		bookService.borrowBook(book.getId());
+		assertThat(count("book_transaction")).isEqualTo(1);
+		assertThat(bookService.scrollBorrowedBooks(null, 10, CountMode.EXACT).data().totalElements()).isEqualTo(2);
+	}
+
+	private long count(String table) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE book_id = ?", Long.class, book.getId());
+	}
+}
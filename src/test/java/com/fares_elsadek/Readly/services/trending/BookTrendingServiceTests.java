@@ -0,0 +1,118 @@
+package com.fares_elsadek.Readly.services.trending;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.config.properties.TrendingProperties;
+import com.fares_elsadek.Readly.dtos.BookResponseDto;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@Slf4j
+@SpringBootTest
+class BookTrendingServiceTests {
+
+	@Autowired
+	private BookTrendingService bookTrendingService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+	@Autowired
+	private TrendingProperties trendingProperties;
+
+	private User owner;
+	private final List<Book> books = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("trending");
+		for (int i = 0; i < 3; i++)
+			books.add(fixtures.book(owner, "Trending " + i));
+	}
+
+	@AfterEach
+	void tearDown() {
+		var keys = redisTemplate.keys("book-trending:*");
+		if (keys != null)
+			keys.stream().filter(key -> !key.contains("carried")).forEach(key ->
+					books.forEach(book -> redisTemplate.opsForZSet().remove(key, book.getId())));
+		fixtures.cleanUp();
+		books.clear();
+	}
+
+	@Test
+	void mostViewedBooksRankFirstAfterAFlush() {
+		int[] views = {20_000, 60_000, 40_000};
+		for (int i = 0; i < books.size(); i++)
+			for (int n = 0; n < views[i]; n++)
+				bookTrendingService.recordView(books.get(i).getId());
+		bookTrendingService.flush();
+
+		var ranked = bookTrendingService.getTrendingBooks(50).data().stream()
+				.map(BookResponseDto::id)
+				.filter(id -> books.stream().anyMatch(book -> book.getId().equals(id)))
+				.toList();
+		assertThat(ranked).containsExactly(books.get(1).getId(), books.get(2).getId(), books.get(0).getId());
+	}
+
+	@Test
+	void recordingAViewCostsNanoseconds() {
+		var bookId = books.get(0).getId();
+		for (int n = 0; n < 1_000_000; n++)
+			bookTrendingService.recordView(bookId);
+
+		int iterations = 10_000_000;
+		long started = System.nanoTime();
+		for (int n = 0; n < iterations; n++)
+			bookTrendingService.recordView(bookId);
+		double nanosPerView = (System.nanoTime() - started) / (double) iterations;
+		log.info("recordView: {} ns/op", String.format("%.1f", nanosPerView));
+		bookTrendingService.flush();
+
+		assertThat(nanosPerView).isLessThan(1_000);
+	}
+
+	@Test
+	void aFailedCarryOverIsRetriedAndThenRunsOnce() {
+		long period = System.currentTimeMillis() / trendingProperties.landmarkPeriod().toMillis();
+		var marker = "book-trending:carried:" + period;
+		var previous = "book-trending:" + (period - 1);
+		var bookId = books.get(0).getId();
+		redisTemplate.delete(marker);
+		redisTemplate.opsForValue().set(previous, "not a sorted set");
+		forgetCarriedPeriod();
+
+		assertThatThrownBy(() -> bookTrendingService.getTrendingBooks(10)).isInstanceOf(DataAccessException.class);
+		assertThat(redisTemplate.hasKey(marker)).isFalse();
+
+		redisTemplate.delete(previous);
+		redisTemplate.opsForZSet().add(previous, bookId, 100);
+		bookTrendingService.getTrendingBooks(10);
+		forgetCarriedPeriod();
+		bookTrendingService.getTrendingBooks(10);
+
+		double decay = Math.pow(2, -trendingProperties.landmarkPeriod().toMillis() / (double) trendingProperties.halfLife().toMillis());
+		assertThat(redisTemplate.opsForZSet().score("book-trending:" + period, bookId)).isCloseTo(100 * decay, within(1e-9));
+	}
+
+	// as another node would see it, the marker in Redis is all that stops a second carry-over
+	private void forgetCarriedPeriod() {
+		((AtomicLong) ReflectionTestUtils.getField(bookTrendingService, "carriedPeriod")).set(-1);
+	}
+}
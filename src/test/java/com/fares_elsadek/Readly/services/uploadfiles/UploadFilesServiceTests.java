@@ -0,0 +1,109 @@
+package com.fares_elsadek.Readly.services.uploadfiles;
+
+import com.fares_elsadek.Readly.enums.CoverVariant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class UploadFilesServiceTests {
+
+	@Autowired
+	private UploadFilesService uploadFilesService;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<String> stored = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() throws Exception {
+		for (var name : stored) {
+			Files.deleteIfExists(uploadFilesService.locate(name));
+			jdbcTemplate.update("DELETE FROM stored_blob WHERE blob_key = ?", name);
+		}
+	}
+
+	@Test
+	void sweeperDeletesOnlyBlobsUnreferencedForTheGracePeriod() throws Exception {
+		var referenced = store();
+		var released = store();
+		var fresh = store();
+		var derivative = uploadFilesService.locate(CoverVariant.SMALL.fileName(released));
+		Files.write(derivative, new byte[]{1});
+		transactionTemplate.executeWithoutResult(status -> {
+			uploadFilesService.retain(referenced);
+			uploadFilesService.retain(released);
+		});
+		transactionTemplate.executeWithoutResult(status -> uploadFilesService.release(released));
+		jdbcTemplate.update("UPDATE stored_blob SET updated_at = now() - interval '1 day' WHERE blob_key IN (?, ?)",
+				referenced, released);
+
+		uploadFilesService.sweepUnreferenced();
+
+		assertThat(uploadFilesService.locate(referenced)).exists();
+		assertThat(uploadFilesService.locate(fresh)).exists();
+		assertThat(uploadFilesService.locate(released)).doesNotExist();
+		assertThat(derivative).doesNotExist();
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM stored_blob WHERE blob_key = ?", Long.class, released))
+				.isZero();
+	}
+
+	@Test
+	void storingKnownContentKeepsTheFirstCopy() throws Exception {
+		var name = store();
+		var sha256 = name.substring(0, 64);
+		var again = Files.createTempFile("upload", ".upload");
+		Files.writeString(again, "other bytes, same key");
+
+		assertThat(uploadFilesService.store(again, sha256, "png")).isEqualTo(name);
+		assertThat(again).doesNotExist();
+		assertThat(Files.readString(uploadFilesService.locate(name))).isEqualTo(name);
+	}
+
+	@Test
+	void privateFilesCannotBeLocatedAsPublicOnes() throws Exception {
+		var sha256 = (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+		var source = Files.createTempFile("upload", ".upload");
+		var name = uploadFilesService.storePrivate(source, sha256, "pdf");
+		stored.add(name);
+
+		assertThat(name).isEqualTo("private/" + sha256 + ".pdf");
+		assertThat(uploadFilesService.locate(name)).exists()
+				.isEqualTo(Path.of("private-uploads", sha256.substring(0, 2), sha256.substring(2, 4), sha256 + ".pdf"));
+		assertThatThrownBy(() -> uploadFilesService.locatePublic(name)).isInstanceOf(IllegalArgumentException.class);
+		// knowing the hash is not enough, the same name resolves into the public root where the file is not
+		assertThat(uploadFilesService.locatePublic(sha256 + ".pdf")).doesNotExist();
+	}
+
+	@Test
+	void namesOutsideTheStoreAreRejected() {
+		assertThatThrownBy(() -> uploadFilesService.locate("../application.yml"))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> uploadFilesService.locate("a".repeat(64) + "/../../../secret"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private String store() throws Exception {
+		var sha256 = (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+		var source = Files.createTempFile("upload", ".upload");
+		Files.writeString(source, sha256 + ".png");
+		var name = uploadFilesService.store(source, sha256, "png");
+		stored.add(name);
+		stored.add(CoverVariant.SMALL.fileName(name));
+		return name;
+	}
+}
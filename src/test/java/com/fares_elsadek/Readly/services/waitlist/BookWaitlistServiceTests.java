@@ -0,0 +1,162 @@
+package com.fares_elsadek.Readly.services.waitlist;
+
+import com.fares_elsadek.Readly.TestFixtures;
+import com.fares_elsadek.Readly.entity.Book;
+import com.fares_elsadek.Readly.entity.User;
+import com.fares_elsadek.Readly.events.WaitlistJoinedEvent;
+import com.fares_elsadek.Readly.repository.BookWaitlistRepository;
+import com.fares_elsadek.Readly.services.book.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.fares_elsadek.Readly.TestFixtures.authenticateAs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class BookWaitlistServiceTests {
+
+	@TestConfiguration
+	static class NoCacheConfig {
+		@Bean
+		@Primary
+		CacheManager noOpCacheManager() {
+			return new NoOpCacheManager();
+		}
+	}
+
+	@Autowired
+	private BookWaitlistService bookWaitlistService;
+	@Autowired
+	private BookService bookService;
+	@Autowired
+	private TestFixtures fixtures;
+	@Autowired
+	private BookWaitlistRepository bookWaitlistRepository;
+	@Autowired
+	private WaitlistRankIndex waitlistRankIndex;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	private User owner;
+	private User holder;
+	private final List<User> waiters = new ArrayList<>();
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		owner = fixtures.user("waitlist");
+		holder = fixtures.user("waitlist");
+		for (int i = 0; i < 3; i++)
+			waiters.add(fixtures.user("waitlist"));
+		book = fixtures.book(owner, "Waitlisted");
+
+		authenticateAs(holder);
+		bookService.borrowBook(book.getId());
+		SecurityContextHolder.clearContext();
+	}
+
+	@AfterEach
+	void tearDown() {
+		redisTemplate.delete(List.of("book-waitlist:" + book.getId(), "book-waitlist:" + book.getId() + ":version"));
+		fixtures.cleanUp();
+		waiters.clear();
+	}
+
+	@Test
+	void waitersAreServedInJoinOrder() {
+		for (int i = 0; i < waiters.size(); i++) {
+			authenticateAs(waiters.get(i));
+			assertThat(bookWaitlistService.joinWaitlist(book.getId()).data().position()).isEqualTo(i + 1);
+		}
+
+		authenticateAs(waiters.get(0));
+		bookWaitlistService.leaveWaitlist(book.getId());
+		authenticateAs(waiters.get(2));
+		var position = bookWaitlistService.getWaitlistPosition(book.getId()).data();
+		assertThat(position.position()).isEqualTo(2);
+		assertThat(position.waiting()).isEqualTo(2);
+
+		authenticateAs(holder);
+		bookService.returnBorrowBook(book.getId());
+		authenticateAs(owner);
+		bookService.approveReturnBorrowBook(book.getId());
+
+		assertThat(activeBorrower()).isEqualTo(waiters.get(1).getId());
+		authenticateAs(waiters.get(2));
+		assertThat(bookWaitlistService.getWaitlistPosition(book.getId()).data().position()).isEqualTo(1);
+	}
+
+	@Test
+	void positionsSurviveALostIndex() {
+		for (var waiter : waiters) {
+			authenticateAs(waiter);
+			bookWaitlistService.joinWaitlist(book.getId());
+		}
+		redisTemplate.delete("book-waitlist:" + book.getId());
+
+		authenticateAs(waiters.get(1));
+		var position = bookWaitlistService.getWaitlistPosition(book.getId()).data();
+		assertThat(position.position()).isEqualTo(2);
+		assertThat(position.waiting()).isEqualTo(3);
+	}
+
+	@Test
+	void aRebuildRacingALeaveDoesNotBringTheLeaverBack() {
+		for (var waiter : waiters) {
+			authenticateAs(waiter);
+			bookWaitlistService.joinWaitlist(book.getId());
+		}
+		redisTemplate.delete("book-waitlist:" + book.getId());
+
+		waitlistRankIndex.rebuild(book.getId(), () -> {
+			var tickets = bookWaitlistRepository.findTickets(book.getId());
+			authenticateAs(waiters.get(0));
+			bookWaitlistService.leaveWaitlist(book.getId());
+			return tickets;
+		});
+		assertThat(waitlistRankIndex.isLoaded(book.getId())).isFalse();
+
+		authenticateAs(waiters.get(2));
+		var position = bookWaitlistService.getWaitlistPosition(book.getId()).data();
+		assertThat(position.position()).isEqualTo(2);
+		assertThat(position.waiting()).isEqualTo(2);
+	}
+
+	@Test
+	void aJoinDoesNotStartAMissingIndex() {
+		for (var waiter : waiters) {
+			authenticateAs(waiter);
+			bookWaitlistService.joinWaitlist(book.getId());
+		}
+		redisTemplate.delete("book-waitlist:" + book.getId());
+
+		waitlistRankIndex.onJoined(new WaitlistJoinedEvent(book.getId(), holder.getId(), Long.MAX_VALUE));
+		assertThat(waitlistRankIndex.isLoaded(book.getId())).isFalse();
+
+		authenticateAs(waiters.get(2));
+		assertThat(bookWaitlistService.getWaitlistPosition(book.getId()).data().waiting()).isEqualTo(3);
+	}
+
+	private String activeBorrower() {
+		return jdbcTemplate.queryForObject("""
+				SELECT t.user_id FROM book b JOIN book_transaction t ON t.id = b.active_transaction_id
+				WHERE b.id = ?
+				""", String.class, book.getId());
+	}
+}
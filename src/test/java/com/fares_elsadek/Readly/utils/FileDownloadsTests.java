@@ -0,0 +1,105 @@
+package com.fares_elsadek.Readly.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileDownloadsTests {
+
+	private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).immutable();
+
+	@TempDir
+	Path dir;
+
+	private Path file;
+
+	@BeforeEach
+	void writeFile() throws Exception {
+		file = Files.writeString(dir.resolve("cover.png"), "0123456789abcdefghij");
+	}
+
+	@Test
+	void sendsTheWholeFileWithValidators() throws Exception {
+		var response = send(new MockHttpServletRequest("GET", "/cover.png"));
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsString()).isEqualTo("0123456789abcdefghij");
+		assertThat(response.getContentType()).isEqualTo("image/png");
+		assertThat(response.getHeader(HttpHeaders.ETAG)).startsWith("\"");
+		assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+		assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=31536000, immutable");
+	}
+
+	@Test
+	void sendsOneRange() throws Exception {
+		var request = new MockHttpServletRequest("GET", "/cover.png");
+		request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+		var response = send(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 5-9/20");
+		assertThat(response.getContentAsString()).isEqualTo("56789");
+
+		request = new MockHttpServletRequest("GET", "/cover.png");
+		request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+		assertThat(send(request).getContentAsString()).isEqualTo("hij");
+	}
+
+	@Test
+	void rejectsRangesPastTheEnd() throws Exception {
+		var request = new MockHttpServletRequest("GET", "/cover.png");
+		request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+		var response = send(request);
+
+		assertThat(response.getStatus()).isEqualTo(416);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */20");
+	}
+
+	@Test
+	void revalidationAndStaleRangesUseTheETag() throws Exception {
+		var etag = send(new MockHttpServletRequest("GET", "/cover.png")).getHeader(HttpHeaders.ETAG);
+
+		var request = new MockHttpServletRequest("GET", "/cover.png");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		var notModified = send(request);
+		assertThat(notModified.getStatus()).isEqualTo(304);
+		assertThat(notModified.getContentAsByteArray()).isEmpty();
+
+		request = new MockHttpServletRequest("GET", "/cover.png");
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-4");
+		request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+		var whole = send(request);
+		assertThat(whole.getStatus()).isEqualTo(200);
+		assertThat(whole.getContentAsString()).hasSize(20);
+	}
+
+	@Test
+	void largeFilesAreCopiedWhole() throws Exception {
+		var content = new byte[3 * 1024 * 1024 + 17];
+		Arrays.fill(content, (byte) 'x');
+		Files.write(file, content);
+
+		var response = send(new MockHttpServletRequest("GET", "/cover.png"));
+
+		assertThat(response.getContentLengthLong()).isEqualTo(content.length);
+		assertThat(response.getContentAsString(StandardCharsets.US_ASCII)).hasSize(content.length);
+	}
+
+	private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+		var response = new MockHttpServletResponse();
+		FileDownloads.send(file, IMMUTABLE, request, response);
+		return response;
+	}
+}